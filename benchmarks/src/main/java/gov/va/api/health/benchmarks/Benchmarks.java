@@ -0,0 +1,29 @@
+package gov.va.api.health.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import lombok.experimental.UtilityClass;
+import org.openjdk.jmh.Main;
+
+/**
+ * Runs the benchmarks with the standard JMH command line, writing results as JSON to
+ * jmh-result.json unless another result format or file is specified. Results from successive parent
+ * releases can be compared to find regressions.
+ */
+@UtilityClass
+public class Benchmarks {
+  /** Run the benchmarks matching the given JMH options. */
+  public static void main(String[] args) throws Exception {
+    List<String> options = new ArrayList<>(Arrays.asList(args));
+    if (!options.contains("-rf")) {
+      options.add(0, "json");
+      options.add(0, "-rf");
+    }
+    if (!options.contains("-rff")) {
+      options.add(0, "jmh-result.json");
+      options.add(0, "-rff");
+    }
+    Main.main(options.toArray(new String[0]));
+  }
+}
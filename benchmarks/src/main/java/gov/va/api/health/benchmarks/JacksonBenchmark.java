@@ -0,0 +1,79 @@
+package gov.va.api.health.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import gov.va.api.health.autoconfig.configuration.JacksonConfig;
+import gov.va.api.health.benchmarks.Samples.Bundle;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serializes and deserializes Lombok value types with JacksonConfig mappers, with and without
+ * Afterburner, using readers and writers that are created once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+/*
+ * On Java 9 and later, Afterburner can only access the package private constructors of Lombok
+ * builders if java.lang is open. Java 8 ignores the option.
+ */
+@Fork(
+    value = 1,
+    jvmArgsAppend = {
+      "-XX:+IgnoreUnrecognizedVMOptions",
+      "--add-opens=java.base/java.lang=ALL-UNNAMED"
+    })
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JacksonBenchmark {
+  /** The number of entries in the bundle. */
+  @Param({"1", "100"})
+  public int entries;
+
+  /** Whether the mapper uses Afterburner. */
+  @Param({"false", "true"})
+  public boolean afterburner;
+
+  private Bundle bundle;
+
+  private byte[] json;
+
+  private ObjectReader reader;
+
+  private ObjectWriter writer;
+
+  /** Deserialize a bundle using its builders. */
+  @Benchmark
+  public Bundle deserialize() throws IOException {
+    return reader.readValue(json);
+  }
+
+  /** Serialize a bundle, trimming every string. */
+  @Benchmark
+  public byte[] serialize() throws IOException {
+    return writer.writeValueAsBytes(bundle);
+  }
+
+  /** Build the bundle, its JSON, and the reader and writer. */
+  @Setup
+  public void setUp() throws IOException {
+    ObjectMapper mapper = JacksonConfig.createMapper(afterburner);
+    bundle = Samples.bundle(entries);
+    reader = mapper.readerFor(Bundle.class);
+    writer = mapper.writerFor(Bundle.class);
+    json = writer.writeValueAsBytes(bundle);
+  }
+}
@@ -0,0 +1,55 @@
+package gov.va.api.health.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gov.va.api.health.autoconfig.configuration.JacksonConfig;
+import gov.va.api.health.benchmarks.Samples.Observation;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of creating JacksonConfig mappers, and of reading a value with a new mapper
+ * compared to the shared, cached readers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MapperCreationBenchmark {
+  private byte[] json;
+
+  /** Create a new mapper. */
+  @Benchmark
+  public ObjectMapper createMapper() {
+    return JacksonConfig.createMapper();
+  }
+
+  /** Create a new mapper and read a value with it, discarding all introspection afterwards. */
+  @Benchmark
+  public Observation createMapperAndRead() throws IOException {
+    return JacksonConfig.createMapper().readValue(json, Observation.class);
+  }
+
+  /** Build the JSON to read. */
+  @Setup
+  public void setUp() throws IOException {
+    json = JacksonConfig.writerFor(Observation.class).writeValueAsBytes(Samples.observation(1));
+  }
+
+  /** Read a value with the shared reader. */
+  @Benchmark
+  public Observation sharedReader() throws IOException {
+    return JacksonConfig.readerFor(Observation.class).readValue(json);
+  }
+}
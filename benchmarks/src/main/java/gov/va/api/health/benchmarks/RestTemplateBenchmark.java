@@ -0,0 +1,114 @@
+package gov.va.api.health.benchmarks;
+
+import com.sun.net.httpserver.HttpServer;
+import gov.va.api.health.autoconfig.configuration.HttpClientProperties;
+import gov.va.api.health.autoconfig.configuration.JacksonConfig;
+import gov.va.api.health.autoconfig.configuration.SecureRestTemplateConfig;
+import gov.va.api.health.autoconfig.configuration.SslClientProperties;
+import gov.va.api.health.benchmarks.Samples.Bundle;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Round trips through the secure rest templates to an HTTP server on localhost, including
+ * connection pooling, interceptors, and JSON conversion. Latency of the local server is negligible,
+ * so differences reflect client overhead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+/* Without TCP_NODELAY, the JDK server and delayed ACKs add about 40ms to every request. */
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RestTemplateBenchmark {
+  /** The number of entries in the bundle returned by the server. */
+  @Param({"1", "100"})
+  public int entries;
+
+  private HttpServer server;
+
+  private ExecutorService serverThreads;
+
+  private RestTemplate buffering;
+
+  private RestTemplate streaming;
+
+  private String url;
+
+  /** Read the bundle with the primary, buffering rest template. */
+  @Benchmark
+  public Bundle buffering() {
+    return buffering.getForObject(url, Bundle.class);
+  }
+
+  /** Read the bundle with the buffering rest template from several threads at once. */
+  @Benchmark
+  @Threads(8)
+  public Bundle bufferingConcurrently() {
+    return buffering.getForObject(url, Bundle.class);
+  }
+
+  /** Start the server and create the rest templates. */
+  @Setup
+  public void setUp() throws IOException {
+    serverThreads = Executors.newFixedThreadPool(8);
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.setExecutor(serverThreads);
+    byte[] body = JacksonConfig.writerFor(Bundle.class).writeValueAsBytes(Samples.bundle(entries));
+    server.createContext(
+        "/",
+        exchange -> {
+          exchange.getResponseHeaders().set("Content-Type", "application/json");
+          exchange.sendResponseHeaders(200, body.length);
+          try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+          }
+        });
+    server.start();
+    url = "http://localhost:" + server.getAddress().getPort() + "/bundle";
+    SecureRestTemplateConfig config =
+        new SecureRestTemplateConfig(
+            SslClientProperties.builder().enableClient(false).build(),
+            HttpClientProperties.builder().build());
+    RestTemplateBuilder builder =
+        new RestTemplateBuilder()
+            .messageConverters(
+                new MappingJackson2HttpMessageConverter(JacksonConfig.createMapper()));
+    buffering = config.restTemplate(builder);
+    streaming = config.streamingRestTemplate(builder);
+  }
+
+  /** Read the bundle with the streaming rest template. */
+  @Benchmark
+  public Bundle streaming() {
+    return streaming.getForObject(url, Bundle.class);
+  }
+
+  /** Stop the server. */
+  @TearDown
+  public void tearDown() {
+    server.stop(0);
+    serverThreads.shutdownNow();
+  }
+}
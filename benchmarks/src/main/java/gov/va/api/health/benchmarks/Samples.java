@@ -0,0 +1,102 @@
+package gov.va.api.health.benchmarks;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import lombok.Builder;
+import lombok.Value;
+import lombok.experimental.UtilityClass;
+
+/** Lombok value types shaped like the resources our services exchange. */
+@UtilityClass
+class Samples {
+  /** A bundle of observations for a patient, with the given number of entries. */
+  Bundle bundle(int entries) {
+    List<Observation> observations = new ArrayList<>(entries);
+    for (int i = 0; i < entries; i++) {
+      observations.add(observation(i));
+    }
+    return Bundle.builder()
+        .resourceType("Bundle")
+        .type("searchset")
+        .total(entries)
+        .entry(observations)
+        .build();
+  }
+
+  /** A single observation, distinguished by the given index. */
+  Observation observation(int index) {
+    return Observation.builder()
+        .resourceType("Observation")
+        .id("I2-" + index + "-ABCDEFGHIJKLMNOP")
+        .status("final")
+        .category(Arrays.asList(Coding.builder().system("category").code("vital-signs").build()))
+        .code(
+            Coding.builder()
+                .system("http://loinc.org")
+                .code("8480-6")
+                .display("Systolic blood pressure")
+                .build())
+        .subject(Reference.builder().reference("Patient/1234567890V123456").build())
+        .effective(Instant.parse("2019-06-01T12:00:00Z").plusSeconds(index))
+        .value(Quantity.builder().value(120 + index % 40).unit("mm[Hg]").build())
+        .build();
+  }
+
+  @Value
+  @Builder
+  static class Bundle {
+    String resourceType;
+
+    String type;
+
+    int total;
+
+    List<Observation> entry;
+  }
+
+  @Value
+  @Builder
+  static class Coding {
+    String system;
+
+    String code;
+
+    String display;
+  }
+
+  @Value
+  @Builder
+  static class Observation {
+    String resourceType;
+
+    String id;
+
+    String status;
+
+    List<Coding> category;
+
+    Coding code;
+
+    Reference subject;
+
+    Instant effective;
+
+    Quantity value;
+  }
+
+  @Value
+  @Builder
+  static class Quantity {
+    double value;
+
+    String unit;
+  }
+
+  @Value
+  @Builder
+  static class Reference {
+    String reference;
+  }
+}
@@ -0,0 +1,137 @@
+package gov.va.api.health.benchmarks;
+
+import static org.apache.commons.lang3.StringUtils.trim;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdScalarSerializer;
+import gov.va.api.health.autoconfig.configuration.JacksonConfig;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import lombok.Builder;
+import lombok.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares serializing a bundle-like document with the JacksonConfig string trimming serializer to
+ * the previous implementation, which created a trimmed copy of every string. Output is discarded so
+ * that allocation measured with the gc profiler is due to serialization only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class StringTrimBenchmark {
+  private static final OutputStream DISCARD =
+      new OutputStream() {
+        @Override
+        public void write(int b) {}
+
+        @Override
+        public void write(byte[] b, int off, int len) {}
+      };
+
+  /** Whether strings are already trimmed, as is typical, or padded with whitespace. */
+  @Param({"trimmed", "padded"})
+  public String strings;
+
+  private Bundle bundle;
+
+  private ObjectWriter current;
+
+  private ObjectWriter legacy;
+
+  /** Serialize using the current JacksonConfig trimming serializer. */
+  @Benchmark
+  public void current() throws IOException {
+    current.writeValue(DISCARD, bundle);
+  }
+
+  /** Serialize using a copy of the previous trimming serializer. */
+  @Benchmark
+  public void legacy() throws IOException {
+    legacy.writeValue(DISCARD, bundle);
+  }
+
+  /** Build the document and writers. */
+  @Setup
+  public void setUp() {
+    String pad = "padded".equals(strings) ? " " : "";
+    List<Entry> entries = new ArrayList<>(1000);
+    for (int i = 0; i < 1000; i++) {
+      entries.add(
+          Entry.builder()
+              .id(pad + "I2-" + i + "-ABCDEFGHIJKLMNOP" + pad)
+              .status(pad + "final" + pad)
+              .code(pad + "8480-6" + pad)
+              .display(pad + "Systolic blood pressure" + pad)
+              .unit(pad + "mm[Hg]" + pad)
+              .value(120 + i % 40)
+              .build());
+    }
+    bundle = Bundle.builder().type("searchset").total(entries.size()).entry(entries).build();
+    current = JacksonConfig.createMapper().writerFor(Bundle.class);
+    legacy =
+        JacksonConfig.createMapper()
+            .registerModule(new LegacyStringTrimModule())
+            .writerFor(Bundle.class);
+  }
+
+  @Value
+  @Builder
+  static class Bundle {
+    String type;
+
+    int total;
+
+    List<Entry> entry;
+  }
+
+  @Value
+  @Builder
+  static class Entry {
+    String id;
+
+    String status;
+
+    String code;
+
+    String display;
+
+    String unit;
+
+    int value;
+  }
+
+  /** The string trimming module used by JacksonConfig before allocation free trimming. */
+  private static class LegacyStringTrimModule extends SimpleModule {
+    LegacyStringTrimModule() {
+      addSerializer(
+          String.class,
+          new StdScalarSerializer<String>(String.class, false) {
+            @Override
+            public void serialize(String value, JsonGenerator gen, SerializerProvider provider)
+                throws IOException {
+              gen.writeString(trim(value));
+            }
+          });
+    }
+  }
+}
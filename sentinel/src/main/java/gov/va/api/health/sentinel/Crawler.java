@@ -0,0 +1,393 @@
+package gov.va.api.health.sentinel;
+
+import static java.util.stream.Collectors.toList;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import gov.va.api.health.autoconfig.configuration.JacksonConfig;
+import io.restassured.response.Response;
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Singular;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Crawls the resources of a FHIR service, starting from a set of seed URLs and following bundle
+ * links, entry full URLs, and resource references. Requests are made concurrently by the threads of
+ * the {@link ExecutionMode}, one per request in flight. Each URL is requested once, and a summary
+ * of timings and failures is produced when there is nothing left to crawl.
+ *
+ * <pre>
+ *   Crawler.Summary summary =
+ *       Crawler.builder()
+ *           .service(service)
+ *           .seed("Patient/1011537977V693883")
+ *           .seed("Observation?patient=1011537977V693883")
+ *           .threads(SentinelProperties.threadCount("sentinel.threads", 8))
+ *           .ignores(SentinelProperties.optionCrawlerIgnores("argonaut"))
+ *           .urlReplace(SentinelProperties.urlReplace("argonaut"))
+ *           .build()
+ *           .crawl();
+ *   assertThat(summary.failures()).isEmpty();
+ * </pre>
+ *
+ * <p>Seeds and references may be relative to the service URL and API path. Only URLs on the service
+ * are followed. Links that start with the URL replacement, typically the public URL of the service,
+ * are rewritten to the service URL. Failures of URLs that contain any of the comma separated
+ * ignores are reported separately and are not counted as failures.
+ */
+@Slf4j
+@Value
+@Builder
+public class Crawler {
+  private static final int MAX_REPORTED_PENDING = 20;
+
+  @NonNull ServiceDefinition service;
+
+  @Singular List<String> seeds;
+
+  /** The maximum number of concurrent requests. */
+  @Builder.Default int threads = 1;
+
+  @Builder.Default ExecutionMode executionMode = ExecutionMode.get();
+
+  String ignores;
+
+  String urlReplace;
+
+  @Builder.Default String accept = "application/json";
+
+  /**
+   * The longest the crawl may take. A crawl that has not finished by then fails, listing the URLs
+   * that were still pending, e.g. because a request never completed.
+   */
+  @Builder.Default Duration timeout = Duration.ofHours(1);
+
+  private static void addText(JsonNode node, Collection<String> links) {
+    if (node != null && node.isTextual()) {
+      links.add(node.asText());
+    }
+  }
+
+  /** Collect the references, full URLs, and bundle links anywhere in the node. */
+  static void collectLinks(JsonNode node, Collection<String> links) {
+    if (node.isArray()) {
+      node.forEach(element -> collectLinks(element, links));
+      return;
+    }
+    if (!node.isObject()) {
+      return;
+    }
+    addText(node.get("reference"), links);
+    addText(node.get("fullUrl"), links);
+    if (node.has("relation")) {
+      addText(node.get("url"), links);
+    }
+    node.forEach(child -> collectLinks(child, links));
+  }
+
+  /**
+   * Resolve a link to an absolute URL that starts with the base, or null if it should not be
+   * followed. Links that start with the URL replacement are rewritten to the base.
+   */
+  static String resolve(String base, String urlReplace, String link) {
+    if (isBlank(link) || link.startsWith("#") || link.startsWith("urn:")) {
+      return null;
+    }
+    String url = link.trim();
+    if (!isBlank(urlReplace) && url.startsWith(urlReplace)) {
+      url = base + stripLeadingSlash(url.substring(urlReplace.length()));
+    } else if (!url.startsWith("http://") && !url.startsWith("https://")) {
+      url = base + stripLeadingSlash(url);
+    }
+    if (!url.startsWith(base)) {
+      log.debug("Not following {}", url);
+      return null;
+    }
+    return url;
+  }
+
+  private static String stripLeadingSlash(String path) {
+    return path.startsWith("/") ? path.substring(1) : path;
+  }
+
+  /**
+   * The service URL, including the port if it is not already part of the URL, and the API path. All
+   * crawled URLs start with this prefix.
+   */
+  private String base() {
+    String url = service.url();
+    URI uri = URI.create(url);
+    if (uri.getPort() < 0 && service.port() > 0) {
+      url = uri.getScheme() + "://" + uri.getHost() + ":" + service.port();
+      if (uri.getRawPath() != null) {
+        url += uri.getRawPath();
+      }
+    }
+    StringBuilder base = new StringBuilder(url);
+    if (url.endsWith("/")) {
+      base.setLength(base.length() - 1);
+    }
+    base.append('/').append(stripLeadingSlash(service.apiPath()));
+    if (base.charAt(base.length() - 1) != '/') {
+      base.append('/');
+    }
+    return base.toString();
+  }
+
+  /**
+   * Crawl from the seeds until there is nothing left to follow, returning the summary. The summary
+   * is also logged.
+   */
+  public Summary crawl() {
+    Run run = new Run();
+    Summary summary = run.crawl();
+    log.info("{}", summary.report());
+    return summary;
+  }
+
+  /** The state of a single crawl. */
+  private final class Run {
+    private final String base = base();
+
+    private final List<String> ignored =
+        isBlank(ignores)
+            ? new ArrayList<>()
+            : Arrays.stream(ignores.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .collect(toList());
+
+    private final ExecutorService executor = executionMode.executor("sentinel-crawler", threads);
+
+    private final Set<String> seen = ConcurrentHashMap.newKeySet();
+
+    private final Collection<Visit> visits = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong pending = new AtomicLong();
+
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final CountDownLatch finished = new CountDownLatch(1);
+
+    Summary crawl() {
+      long start = System.nanoTime();
+      pending.incrementAndGet();
+      try {
+        seeds.forEach(this::schedule);
+        done();
+        if (!finished.await(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+          throw new AssertionError(
+              "Crawl did not finish within " + timeout + ", " + describePending());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new AssertionError("Crawl was interrupted", e);
+      } finally {
+        executor.shutdownNow();
+      }
+      return new Summary(
+          new ArrayList<>(visits),
+          Duration.ofNanos(System.nanoTime() - start),
+          executionMode,
+          Math.max(1, threads));
+    }
+
+    private String describePending() {
+      List<String> urls = inFlight.stream().sorted().collect(toList());
+      return urls.size()
+          + " URLs pending: "
+          + String.join(", ", urls.subList(0, Math.min(urls.size(), MAX_REPORTED_PENDING)))
+          + (urls.size() > MAX_REPORTED_PENDING ? ", ..." : "");
+    }
+
+    private void done() {
+      if (pending.decrementAndGet() == 0) {
+        finished.countDown();
+      }
+    }
+
+    private boolean isIgnored(String url) {
+      return ignored.stream().anyMatch(url::contains);
+    }
+
+    /** Queue the link to be visited, unless it has already been seen. */
+    private void schedule(String link) {
+      String url = resolve(base, urlReplace, link);
+      if (url == null || !seen.add(url)) {
+        return;
+      }
+      pending.incrementAndGet();
+      inFlight.add(url);
+      Runnable task = () -> visit(url);
+      /* Workers of this crawl's pool fork locally, callers running in another pool do not. */
+      if (ForkJoinTask.getPool() == executor) {
+        ForkJoinTask.adapt(task).fork();
+      } else {
+        executor.execute(task);
+      }
+    }
+
+    private void visit(String url) {
+      Visit.VisitBuilder visit = Visit.builder().url(url).ignored(isIgnored(url));
+      long start = System.nanoTime();
+      try {
+        Response response = service.requestSpecification().accept(accept).get(url);
+        byte[] body = response.asByteArray();
+        visit.nanos(System.nanoTime() - start).status(response.statusCode());
+        if (response.statusCode() != 200) {
+          visit.error("Status " + response.statusCode());
+          return;
+        }
+        List<String> links = new ArrayList<>();
+        collectLinks(JacksonConfig.readerFor(JsonNode.class).readValue(body), links);
+        links.forEach(this::schedule);
+      } catch (IOException | RuntimeException e) {
+        visit
+            .nanos(System.nanoTime() - start)
+            .error(e.getClass().getSimpleName() + ": " + e.getMessage());
+      } finally {
+        visits.add(visit.build());
+        inFlight.remove(url);
+        done();
+      }
+    }
+  }
+
+  /** The timings and failures of a crawl. */
+  @Value
+  public static class Summary {
+    private static final int SLOWEST = 10;
+
+    List<Visit> visits;
+
+    Duration elapsed;
+
+    ExecutionMode executionMode;
+
+    int threads;
+
+    private static String millis(long nanos) {
+      return TimeUnit.NANOSECONDS.toMillis(nanos) + " ms";
+    }
+
+    /** Failed visits, excluding those that are ignored. */
+    public List<Visit> failures() {
+      return visits.stream().filter(v -> v.failed() && !v.ignored()).collect(toList());
+    }
+
+    /** Failed visits that are ignored. */
+    public List<Visit> ignoredFailures() {
+      return visits.stream().filter(v -> v.failed() && v.ignored()).collect(toList());
+    }
+
+    /** The response time that the given fraction, between 0 and 1, of visits were faster than. */
+    public Duration percentile(double fraction) {
+      long[] nanos = visits.stream().mapToLong(Visit::nanos).sorted().toArray();
+      if (nanos.length == 0) {
+        return Duration.ZERO;
+      }
+      int index = (int) Math.ceil(fraction * nanos.length) - 1;
+      return Duration.ofNanos(nanos[Math.max(0, Math.min(nanos.length - 1, index))]);
+    }
+
+    /** Describe the crawl as a multi-line report. */
+    public String report() {
+      StringBuilder report = new StringBuilder(1024);
+      report
+          .append("Crawled ")
+          .append(visits.size())
+          .append(" URLs in ")
+          .append(elapsed)
+          .append(" with ")
+          .append(threads)
+          .append(' ')
+          .append(executionMode)
+          .append(" threads");
+      if (!visits.isEmpty()) {
+        report
+            .append("\nResponse times: 50% ")
+            .append(millis(percentile(0.5).toNanos()))
+            .append(", 95% ")
+            .append(millis(percentile(0.95).toNanos()))
+            .append(", 99% ")
+            .append(millis(percentile(0.99).toNanos()))
+            .append(", max ")
+            .append(millis(percentile(1).toNanos()));
+      }
+      List<Visit> failures = failures();
+      List<Visit> ignoredFailures = ignoredFailures();
+      report
+          .append("\nFailures: ")
+          .append(failures.size())
+          .append(" (")
+          .append(ignoredFailures.size())
+          .append(" ignored)");
+      failures.forEach(v -> report.append("\n  ").append(v.describe()));
+      ignoredFailures.forEach(v -> report.append("\n  IGNORED ").append(v.describe()));
+      report.append("\nSlowest:");
+      visits.stream()
+          .sorted(Comparator.comparingLong(Visit::nanos).reversed())
+          .limit(SLOWEST)
+          .forEach(v -> report.append("\n  ").append(v.describe()));
+      return report.toString();
+    }
+
+    /**
+     * The URLs that were visited successfully, e.g. to replay in a {@link LoadTest}. Ignored URLs
+     * are not included.
+     */
+    public List<String> urls() {
+      return visits.stream()
+          .filter(v -> !v.failed() && !v.ignored())
+          .map(Visit::url)
+          .collect(toList());
+    }
+  }
+
+  /** The outcome of requesting a single URL. */
+  @Value
+  @Builder
+  public static class Visit {
+    String url;
+
+    /** The HTTP status, or 0 if no response was received. */
+    int status;
+
+    long nanos;
+
+    /** The reason the visit failed, or null if it was successful. */
+    String error;
+
+    boolean ignored;
+
+    String describe() {
+      return url
+          + " "
+          + TimeUnit.NANOSECONDS.toMillis(nanos)
+          + " ms"
+          + (failed() ? " " + error : "");
+    }
+
+    public boolean failed() {
+      return error != null;
+    }
+  }
+}
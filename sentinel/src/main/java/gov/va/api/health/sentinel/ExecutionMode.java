@@ -0,0 +1,127 @@
+package gov.va.api.health.sentinel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Determines how crawler and bulk test requests are executed. Requests made through Rest Assured
+ * block while waiting on the network, so concurrency is limited by the number of threads.
+ */
+@Slf4j
+public enum ExecutionMode {
+  /** Requests are executed by a work-stealing pool with one thread per concurrent request. */
+  POOL {
+    @Override
+    public ExecutorService executor(String name, int concurrency) {
+      return new ForkJoinPool(Math.max(1, concurrency));
+    }
+  },
+  /**
+   * Requests are executed by a fixed size pool of platform threads with smaller stacks than POOL
+   * uses. No more requests than the concurrency limit are in flight at once, as with POOL. Threads
+   * are created as needed, up to the limit, and exit when idle. Requests beyond the limit wait in a
+   * queue.
+   */
+  CONCURRENT {
+    @Override
+    public ExecutorService executor(String name, int concurrency) {
+      int limit = Math.max(1, concurrency);
+      ThreadPoolExecutor executor =
+          new ThreadPoolExecutor(
+              limit,
+              limit,
+              10,
+              TimeUnit.SECONDS,
+              new LinkedBlockingQueue<>(),
+              smallStackThreads(name));
+      executor.allowCoreThreadTimeOut(true);
+      return executor;
+    }
+  };
+
+  /** The stack size of threads in concurrent mode, which only need to call Rest Assured. */
+  private static final long SMALL_STACK_SIZE = 256 * 1024;
+
+  static {
+    log.info(
+        "Using {} execution mode (Override with -Dsentinel.execution=POOL|CONCURRENT)",
+        executionProperty());
+  }
+
+  private static String executionProperty() {
+    return System.getProperty("sentinel.execution", "POOL").toUpperCase(Locale.ENGLISH);
+  }
+
+  /** Parse the system property 'sentinel.execution' into the appropriate enum. */
+  public static ExecutionMode get() {
+    switch (executionProperty()) {
+      case "POOL":
+        return ExecutionMode.POOL;
+      case "CONCURRENT":
+        return ExecutionMode.CONCURRENT;
+      default:
+        throw new IllegalArgumentException(
+            "Unknown sentinel execution mode: " + executionProperty());
+    }
+  }
+
+  private static ThreadFactory smallStackThreads(String name) {
+    AtomicInteger count = new AtomicInteger();
+    return runnable -> {
+      Thread thread =
+          new Thread(null, runnable, name + "-" + count.incrementAndGet(), SMALL_STACK_SIZE);
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  /**
+   * Create an executor for running blocking requests, allowing no more than the given number to run
+   * at once. The caller is responsible for shutting it down.
+   */
+  public abstract ExecutorService executor(String name, int concurrency);
+
+  /**
+   * Apply the function to each item, running no more than the given number at once, and return the
+   * results in the same order as the items. If any function fails, the first failure is rethrown.
+   */
+  public <T, R> List<R> map(String name, int concurrency, List<T> items, Function<T, R> function) {
+    ExecutorService executor = executor(name, concurrency);
+    try {
+      List<Future<R>> futures = new ArrayList<>(items.size());
+      for (T item : items) {
+        futures.add(executor.submit(() -> function.apply(item)));
+      }
+      List<R> results = new ArrayList<>(items.size());
+      for (Future<R> future : futures) {
+        results.add(future.get());
+      }
+      return results;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AssertionError(name + " was interrupted", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new AssertionError(name + " failed", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
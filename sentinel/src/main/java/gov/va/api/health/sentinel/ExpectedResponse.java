@@ -1,13 +1,18 @@
 package gov.va.api.health.sentinel;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
 import gov.va.api.health.autoconfig.configuration.JacksonConfig;
 import io.restassured.response.Response;
+import java.io.EOFException;
 import java.io.IOException;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 import javax.validation.ConstraintViolation;
-import javax.validation.Validation;
+import javax.validation.Validator;
 import lombok.AllArgsConstructor;
 import lombok.Value;
 
@@ -20,6 +25,22 @@ import lombok.Value;
 class ExpectedResponse {
   Response response;
 
+  private static <T> String describe(String heading, Set<ConstraintViolation<T>> violations) {
+    StringBuilder message = new StringBuilder(heading);
+    violations.forEach(
+        v ->
+            message
+                .append('\n')
+                .append(v.getMessage())
+                .append(": ")
+                .append(v.getPropertyPath().toString())
+                .append(" = ")
+                .append(v.getInvalidValue()));
+    message.append("\n\nDetails:");
+    violations.forEach(v -> message.append('\n').append(v));
+    return message.toString();
+  }
+
   /** Expect the HTTP status code to be the given value. */
   ExpectedResponse expect(int statusCode) {
     try {
@@ -33,11 +54,11 @@ class ExpectedResponse {
 
   /**
    * Expect the body to be JSON represented by the given type, using the project standard {@link
-   * JacksonConfig} object mapper.
+   * JacksonConfig} shared reader.
    */
   private <T> T expect(Class<T> type) {
     try {
-      return JacksonConfig.createMapper().readValue(response().asByteArray(), type);
+      return JacksonConfig.readerFor(type).readValue(response().asByteArray());
     } catch (IOException e) {
       log();
       throw new AssertionError("Failed to parse JSON body", e);
@@ -46,45 +67,76 @@ class ExpectedResponse {
 
   /**
    * Expect the body to be a JSON list represented by the given type, using the project standard
-   * {@link JacksonConfig} object mapper.
+   * {@link JacksonConfig} shared reader. For large lists, consider {@link #expectEachOf(Class,
+   * Consumer)}.
    */
   <T> List<T> expectListOf(Class<T> type) {
     try {
-      ObjectMapper mapper = JacksonConfig.createMapper();
-      return mapper.readValue(
-          response().asByteArray(),
-          mapper.getTypeFactory().constructCollectionType(List.class, type));
+      return JacksonConfig.readerForListOf(type).readValue(response().asByteArray());
     } catch (IOException e) {
       log();
       throw new AssertionError("Failed to parse JSON body", e);
     }
   }
 
+  /**
+   * Expect the body to be a JSON list of the given type, reading one element at a time and passing
+   * each to the given action. Elements are not retained, so large lists can be checked without
+   * holding every element in memory. If an element cannot be parsed, the failure reports its index.
+   * Returns the number of elements.
+   */
+  <T> long expectEachOf(Class<T> type, Consumer<? super T> action) {
+    return streamListOf(type, (index, element) -> action.accept(element));
+  }
+
+  /**
+   * Expect the body to be a JSON list of the given type, performing Javax Validation against each
+   * element as it is read, then passing it to the given action. The failure reports the index of
+   * the first element that cannot be parsed or is not valid. Returns the number of elements.
+   */
+  <T> long expectEachValid(Class<T> type, Consumer<? super T> action) {
+    Validators.warm(type);
+    Validator validator = Validators.validator();
+    return streamListOf(
+        type,
+        (index, element) -> {
+          Set<ConstraintViolation<T>> violations = validator.validate(element);
+          if (!violations.isEmpty()) {
+            log();
+            throw new AssertionError(describe("Element " + index + " is not valid", violations));
+          }
+          action.accept(element);
+        });
+  }
+
   /**
    * Expect the body to be JSON represented by the given type, using the project standard {@link
-   * JacksonConfig} object mapper, then perform Javax Validation against it.
+   * JacksonConfig} shared reader, then perform Javax Validation against it.
    */
   <T> T expectValid(Class<T> type) {
     T payload = expect(type);
-    Set<ConstraintViolation<T>> violations =
-        Validation.buildDefaultValidatorFactory().getValidator().validate(payload);
+    Set<ConstraintViolation<T>> violations = Validators.validate(payload);
     if (violations.isEmpty()) {
       return payload;
     }
     log();
-    StringBuilder message = new StringBuilder("Constraint Violations:");
-    violations.forEach(
-        v ->
-            message
-                .append('\n')
-                .append(v.getMessage())
-                .append(": ")
-                .append(v.getPropertyPath().toString())
-                .append(" = ")
-                .append(v.getInvalidValue()));
-    message.append("\n\nDetails:");
-    violations.forEach(v -> message.append('\n').append(v));
-    throw new AssertionError(message.toString());
+    throw new AssertionError(describe("Constraint Violations:", violations));
+  }
+
+  /**
+   * Expect the body to be a JSON list represented by the given type, then perform Javax Validation
+   * against every element. Large lists are validated concurrently. The failure reports the index of
+   * the first element that is not valid.
+   */
+  <T> List<T> expectValidListOf(Class<T> type) {
+    List<T> payload = expectListOf(type);
+    Optional<Validators.InvalidElement<T>> invalid = Validators.firstInvalid(type, payload);
+    if (!invalid.isPresent()) {
+      return payload;
+    }
+    log();
+    throw new AssertionError(
+        describe("Element " + invalid.get().index() + " is not valid", invalid.get().violations()));
   }
 
   @SuppressWarnings("UnusedReturnValue")
@@ -92,4 +144,33 @@ class ExpectedResponse {
     response().then().log().all();
     return this;
   }
+
+  private <T> long streamListOf(Class<T> type, ElementAction<T> action) {
+    ObjectReader reader = JacksonConfig.readerFor(type);
+    long index = 0;
+    try (JsonParser parser = reader.getFactory().createParser(response().asInputStream())) {
+      if (parser.nextToken() != JsonToken.START_ARRAY) {
+        log();
+        throw new AssertionError("Expected JSON list");
+      }
+      for (JsonToken token = parser.nextToken();
+          token != JsonToken.END_ARRAY;
+          token = parser.nextToken()) {
+        if (token == null) {
+          throw new EOFException("JSON list is not terminated");
+        }
+        action.accept(index, reader.<T>readValue(parser));
+        index++;
+      }
+      return index;
+    } catch (IOException e) {
+      log();
+      throw new AssertionError("Failed to parse JSON element " + index, e);
+    }
+  }
+
+  @FunctionalInterface
+  private interface ElementAction<T> {
+    void accept(long index, T element);
+  }
 }
@@ -0,0 +1,296 @@
+package gov.va.api.health.sentinel;
+
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Singular;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Replays get requests against a test client for a fixed duration, recording latency histograms for
+ * each path template and response status. This allows functional sentinel suites to double as
+ * lightweight performance smoke tests.
+ *
+ * <pre>
+ *   LoadTest.Report report =
+ *       testClient
+ *           .load()
+ *           .paths(crawlSummary.urls())
+ *           .concurrency(SentinelProperties.threadCount("sentinel.load.threads", 8))
+ *           .ratePerSecond(50)
+ *           .duration(Duration.ofMinutes(1))
+ *           .build()
+ *           .run();
+ *   report.write(Paths.get("target/load-report.txt"));
+ * </pre>
+ *
+ * <p>Paths are requested in order, repeating the list as needed. Without a rate, each of the
+ * concurrent workers sends its next request as soon as the previous one completes. With a rate,
+ * requests are scheduled at fixed intervals. Latency is measured from the scheduled time, so that
+ * time spent waiting for a slow server to accept the next request is included.
+ */
+@Slf4j
+@Value
+@Builder
+public class LoadTest {
+  /** Latencies are recorded in microseconds with three significant digits. */
+  private static final int SIGNIFICANT_DIGITS = 3;
+
+  private static final Pattern RESOURCE_TYPE = Pattern.compile("[A-Z][A-Za-z]+");
+
+  private static final Pattern ID_SHAPED = Pattern.compile("\\d+|(?=.*\\d)[A-Za-z0-9-]{10,}");
+
+  @NonNull TestClient client;
+
+  @Singular List<String> paths;
+
+  @Builder.Default Duration duration = Duration.ofMinutes(1);
+
+  /** The maximum number of requests in flight. */
+  @Builder.Default int concurrency = 1;
+
+  /** The target number of requests per second, or 0 to send requests as fast as possible. */
+  double ratePerSecond;
+
+  @Builder.Default ExecutionMode executionMode = ExecutionMode.get();
+
+  /** Determines the template that a path is reported under. */
+  @Builder.Default Function<String, String> templates = LoadTest::template;
+
+  private static boolean isId(String segment, String previous) {
+    if (segment.isEmpty()) {
+      return false;
+    }
+    if (RESOURCE_TYPE.matcher(previous).matches()
+        && !RESOURCE_TYPE.matcher(segment).matches()
+        && !segment.startsWith("$")
+        && !segment.startsWith("_")) {
+      return true;
+    }
+    return ID_SHAPED.matcher(segment).matches();
+  }
+
+  /**
+   * The default path template. The scheme and host are removed, ids are replaced with {id}, and
+   * query parameter values are replaced with {}, e.g. /api/Observation?patient={}&amp;_count={} or
+   * /api/v0/Patient/{id}. A segment is an id if it follows a resource type, e.g. Patient, and is
+   * not an operation or search, or if it is shaped like an id elsewhere: all digits, or at least
+   * ten letters, digits, and dashes including a digit. Short segments with digits, such as
+   * versions, are kept.
+   */
+  public static String template(String path) {
+    String template = path.replaceFirst("^https?://[^/]+", "");
+    String query = "";
+    int queryStart = template.indexOf('?');
+    if (queryStart >= 0) {
+      query =
+          Arrays.stream(template.substring(queryStart + 1).split("&"))
+              .map(parameter -> parameter.split("=", 2)[0] + "={}")
+              .collect(joining("&", "?", ""));
+      template = template.substring(0, queryStart);
+    }
+    String[] segments = template.split("/", -1);
+    String[] templated = segments.clone();
+    for (int i = 0; i < segments.length; i++) {
+      if (isId(segments[i], i > 0 ? segments[i - 1] : "")) {
+        templated[i] = "{id}";
+      }
+    }
+    return String.join("/", templated) + query;
+  }
+
+  /**
+   * Send requests until the duration has elapsed and all requests in flight have completed,
+   * returning the report. The report is also logged.
+   */
+  public Report run() {
+    if (paths.isEmpty()) {
+      throw new IllegalArgumentException("No paths to request");
+    }
+    Run run = new Run();
+    Report report = run.run();
+    log.info("{}", report.text());
+    return report;
+  }
+
+  /**
+   * The latencies of a load test, by path template and status, e.g. "/api/Patient/{id} 200". A
+   * status of 0 indicates that no response was received.
+   */
+  @Value
+  public static class Report {
+    Duration elapsed;
+
+    int concurrency;
+
+    double ratePerSecond;
+
+    SortedMap<String, Histogram> histograms;
+
+    private static String millis(Histogram histogram, double percentile) {
+      return String.format("%.1f", histogram.getValueAtPercentile(percentile) / 1000.0);
+    }
+
+    /** The total number of requests. */
+    public long count() {
+      return histograms.values().stream().mapToLong(Histogram::getTotalCount).sum();
+    }
+
+    /** The latencies of all requests combined. */
+    public Histogram overall() {
+      Histogram overall = new Histogram(SIGNIFICANT_DIGITS);
+      histograms.values().forEach(overall::add);
+      return overall;
+    }
+
+    /** Summarize the latencies in a table, in milliseconds. */
+    public String text() {
+      StringBuilder text = new StringBuilder(1024);
+      text.append(
+          String.format(
+              "Load test sent %d requests in %s with concurrency %d and target rate %s (%.1f/s)",
+              count(),
+              elapsed,
+              concurrency,
+              ratePerSecond > 0 ? String.format("%.1f/s", ratePerSecond) : "unlimited",
+              count() / Math.max(elapsed.toNanos() / 1e9, 1e-9)));
+      text.append(
+          String.format(
+              "%n%-60s %8s %9s %9s %9s %9s %9s",
+              "Template Status", "Count", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+      histograms.forEach((key, histogram) -> row(text, key, histogram));
+      row(text, "All", overall());
+      return text.toString();
+    }
+
+    private void row(StringBuilder text, String key, Histogram histogram) {
+      text.append(
+          String.format(
+              "%n%-60s %8d %9s %9s %9s %9s %9s",
+              key,
+              histogram.getTotalCount(),
+              millis(histogram, 50),
+              millis(histogram, 90),
+              millis(histogram, 99),
+              millis(histogram, 99.9),
+              millis(histogram, 100)));
+    }
+
+    /**
+     * Write the summary table followed by the full HDR percentile distribution of each template and
+     * status, in milliseconds.
+     */
+    public void write(Path file) throws IOException {
+      if (file.getParent() != null) {
+        Files.createDirectories(file.getParent());
+      }
+      try (OutputStream out = Files.newOutputStream(file);
+          PrintStream print = new PrintStream(out, false, StandardCharsets.UTF_8.name())) {
+        print.println(text());
+        histograms.forEach(
+            (key, histogram) -> {
+              print.println();
+              print.println(key);
+              histogram.outputPercentileDistribution(print, 1000.0);
+            });
+      }
+    }
+  }
+
+  /** The state of a single load test. */
+  private final class Run {
+    private final List<String> pathTemplates = paths.stream().map(templates).collect(toList());
+
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private long start;
+
+    private long deadline;
+
+    private void record(String template, int status, long nanos) {
+      histograms
+          .computeIfAbsent(
+              template + " " + status, k -> new ConcurrentHistogram(SIGNIFICANT_DIGITS))
+          .recordValue(Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos)));
+    }
+
+    Report run() {
+      start = System.nanoTime();
+      deadline = start + duration.toNanos();
+      ExecutorService executor = executionMode.executor("sentinel-load", concurrency);
+      try {
+        for (int i = 0; i < Math.max(1, concurrency); i++) {
+          executor.execute(this::work);
+        }
+        executor.shutdown();
+        if (!executor.awaitTermination(
+            duration.toNanos() + TimeUnit.MINUTES.toNanos(5), TimeUnit.NANOSECONDS)) {
+          log.warn("Requests did not complete within 5 minutes of the load test ending");
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new AssertionError("Load test was interrupted", e);
+      } finally {
+        executor.shutdownNow();
+      }
+      return new Report(
+          Duration.ofNanos(System.nanoTime() - start),
+          concurrency,
+          ratePerSecond,
+          new TreeMap<>(histograms));
+    }
+
+    /** Send requests until the deadline. */
+    private void work() {
+      while (!Thread.currentThread().isInterrupted()) {
+        long next = sequence.getAndIncrement();
+        long scheduled =
+            ratePerSecond > 0
+                ? start + (long) (next * TimeUnit.SECONDS.toNanos(1) / ratePerSecond)
+                : System.nanoTime();
+        if (scheduled >= deadline) {
+          return;
+        }
+        for (long wait = scheduled - System.nanoTime(); wait > 0; ) {
+          LockSupport.parkNanos(wait);
+          wait = scheduled - System.nanoTime();
+        }
+        int index = (int) (next % paths.size());
+        int status;
+        try {
+          status = client.get(paths.get(index)).response().statusCode();
+        } catch (RuntimeException | AssertionError e) {
+          log.debug("Failed to request {}", paths.get(index), e);
+          status = 0;
+        }
+        record(pathTemplates.get(index), status, System.nanoTime() - scheduled);
+      }
+    }
+  }
+}
@@ -3,25 +3,47 @@ package gov.va.api.health.sentinel;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 import io.restassured.RestAssured;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.config.HttpClientConfig;
+import io.restassured.config.RestAssuredConfig;
+import io.restassured.filter.FilterContext;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
 import io.restassured.specification.RequestSpecification;
 import java.util.Optional;
 import java.util.function.Supplier;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NonNull;
+import lombok.ToString;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.http.client.HttpClient;
 
-/** Defines particulars for interacting with a specific service. */
+/**
+ * Defines particulars for interacting with a specific service.
+ *
+ * <p>Requests share a base specification that is built the first time it is needed. The base
+ * specification uses a single pooled HTTP client, so connections, and their TLS sessions, are kept
+ * alive and reused across requests.
+ */
 @Slf4j
 @Value
 @Builder
 @AllArgsConstructor
 public final class ServiceDefinition {
+  private static final int MAX_CONNECTIONS = Integer.getInteger("sentinel.max-connections", 200);
+
   static {
     log.info(
         "Using jargonaut header is {} (Override -Djargonaut=true|false)",
         System.getProperty("jargonaut", "unset"));
+    log.info(
+        "Using up to {} connections per service (Override with -Dsentinel.max-connections=<n>)",
+        MAX_CONNECTIONS);
   }
 
   String url;
@@ -32,18 +54,68 @@ public final class ServiceDefinition {
 
   Supplier<Optional<String>> accessToken;
 
-  RequestSpecification requestSpecification() {
-    RequestSpecification spec =
-        RestAssured.given()
-            .baseUri(url())
-            .port(port())
-            .relaxedHTTPSValidation()
-            .log()
-            .ifValidationFails();
+  @Getter(lazy = true)
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  RequestSpecification baseSpecification = createBaseSpecification();
+
+  /**
+   * Create a client that keeps up to the maximum number of connections alive. Rest Assured 3
+   * requires the deprecated HttpClient 4.2 API, which is fully qualified here so that the
+   * deprecation warnings can be suppressed, since Java 8 also warns about deprecated imports.
+   */
+  @SuppressWarnings("deprecation")
+  private static HttpClient createPooledHttpClient() {
+    org.apache.http.impl.conn.PoolingClientConnectionManager connections =
+        new org.apache.http.impl.conn.PoolingClientConnectionManager(
+            org.apache.http.impl.conn.SchemeRegistryFactory.createDefault());
+    connections.setMaxTotal(MAX_CONNECTIONS);
+    connections.setDefaultMaxPerRoute(MAX_CONNECTIONS);
+    return new org.apache.http.impl.client.DefaultHttpClient(connections);
+  }
+
+  /**
+   * Read the response body so that the pooled connection is released, even if the body is never
+   * used. Rest Assured only releases connections of a reused client once the body is read. The body
+   * is retained by the response.
+   */
+  private static Response readBody(
+      FilterableRequestSpecification request,
+      FilterableResponseSpecification response,
+      FilterContext context) {
+    Response result = context.next(request, response);
+    result.asByteArray();
+    return result;
+  }
+
+  private RequestSpecification createBaseSpecification() {
+    HttpClient client = createPooledHttpClient();
+    RequestSpecBuilder base =
+        new RequestSpecBuilder()
+            .setConfig(
+                RestAssuredConfig.config()
+                    .httpClient(
+                        HttpClientConfig.httpClientConfig()
+                            .reuseHttpClientInstance()
+                            .httpClientFactory(() -> client)))
+            .addFilter(ServiceDefinition::readBody)
+            .setBaseUri(url())
+            .setPort(port())
+            .setRelaxedHTTPSValidation();
     String jargonaut = System.getProperty("jargonaut");
     if (isNotBlank(jargonaut)) {
-      spec.header("jargonaut", jargonaut);
+      base.addHeader("jargonaut", jargonaut);
     }
+    return base.build();
+  }
+
+  /**
+   * Create a specification for a single request from the base specification, adding the current
+   * access token, if any.
+   */
+  RequestSpecification requestSpecification() {
+    RequestSpecification spec =
+        RestAssured.given().spec(baseSpecification()).log().ifValidationFails();
     Optional<String> token = accessToken.get();
     if (token.isPresent()) {
       spec = spec.header("Authorization", "Bearer " + token.get());
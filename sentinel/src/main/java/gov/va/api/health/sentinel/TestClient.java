@@ -1,5 +1,7 @@
 package gov.va.api.health.sentinel;
 
+import java.util.List;
+
 /**
  * The TestClient provides an abstraction to REST requests for a server that returns Rest Assured
  * responses decorated with easy to assert expectations.
@@ -15,6 +17,25 @@ public interface TestClient {
    */
   ExpectedResponse get(String path, String... params);
 
+  /**
+   * Perform get requests for each of the paths, running no more than the given number at once with
+   * the {@link ExecutionMode} selected by system property. Responses are returned in the same order
+   * as the paths.
+   *
+   * <pre>
+   *   tc.getAll(SentinelProperties.threadCount("sentinel.threads", 8), paths)
+   *       .forEach(r -> r.expect(200));
+   * </pre>
+   */
+  default List<ExpectedResponse> getAll(int concurrency, List<String> paths) {
+    return ExecutionMode.get().map("sentinel-test-client", concurrency, paths, path -> get(path));
+  }
+
+  /** Start building a load test that replays get requests with this client. */
+  default LoadTest.LoadTestBuilder load() {
+    return LoadTest.builder().client(this);
+  }
+
   /** Perform a post request with the given body. */
   ExpectedResponse post(String path, Object body);
 
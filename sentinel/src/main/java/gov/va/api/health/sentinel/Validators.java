@@ -0,0 +1,83 @@
+package gov.va.api.health.sentinel;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.IntStream;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.metadata.BeanDescriptor;
+import lombok.Value;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Access to a single, shared Javax Validation validator. Bootstrapping the validator factory is
+ * expensive, as is building the constraint metadata for each type on first use. The validator is
+ * created once and is thread-safe, and the metadata for a type is built the first time the type is
+ * seen, before any elements of it are validated concurrently.
+ */
+@UtilityClass
+class Validators {
+  /**
+   * Lists with fewer elements than this are validated on the calling thread, since splitting the
+   * work costs more than it saves.
+   */
+  private static final int PARALLEL_THRESHOLD = 64;
+
+  private static final ClassValue<BeanDescriptor> DESCRIPTORS =
+      new ClassValue<BeanDescriptor>() {
+        @Override
+        protected BeanDescriptor computeValue(Class<?> type) {
+          return validator().getConstraintsForClass(type);
+        }
+      };
+
+  /** Return violations for the first invalid element of the list, in list order, if any. */
+  static <T> Optional<InvalidElement<T>> firstInvalid(Class<T> type, List<T> elements) {
+    warm(type);
+    IntStream indexes = IntStream.range(0, elements.size());
+    if (elements.size() >= PARALLEL_THRESHOLD) {
+      indexes = indexes.parallel();
+    }
+    return indexes
+        .mapToObj(i -> new InvalidElement<>(i, validator().validate(elements.get(i))))
+        .filter(e -> !e.violations().isEmpty())
+        .findFirst();
+  }
+
+  /** Validate a single object with the shared validator. */
+  static <T> Set<ConstraintViolation<T>> validate(T payload) {
+    warm(payload.getClass());
+    return validator().validate(payload);
+  }
+
+  /** The shared validator. */
+  static Validator validator() {
+    return SharedValidator.INSTANCE;
+  }
+
+  /**
+   * Build the constraint metadata for the given types ahead of time, so that it is not built while
+   * timing requests or on many threads at once.
+   */
+  static void warm(Class<?>... types) {
+    for (Class<?> type : types) {
+      DESCRIPTORS.get(type);
+    }
+  }
+
+  /** The index of a list element and its violations. */
+  @Value
+  static class InvalidElement<T> {
+    int index;
+
+    Set<ConstraintViolation<T>> violations;
+  }
+
+  /** Lazily bootstraps the validator the first time it is needed. */
+  private static final class SharedValidator {
+    private static final Validator INSTANCE =
+        Validation.buildDefaultValidatorFactory().getValidator();
+  }
+}
@@ -7,8 +7,10 @@ import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.restassured.RestAssured;
 import io.restassured.http.ContentType;
+import java.net.URI;
 import java.net.URLEncoder;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -27,6 +29,7 @@ import org.openqa.selenium.By;
 import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.NoSuchElementException;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.chrome.ChromeDriver;
 import org.openqa.selenium.chrome.ChromeOptions;
@@ -37,12 +40,40 @@ import org.openqa.selenium.support.ui.WebDriverWait;
 @Slf4j
 @RequiredArgsConstructor(staticName = "of")
 public class IdMeOauthRobot {
+  private static final int IMPLICIT_WAIT_SECONDS = 1;
+
   @Getter @NonNull private final Configuration config;
 
   private String code;
 
   private TokenExchange token;
 
+  /** The pages visited while logging in, whose cookies are cleared to reuse the browser. */
+  private final Set<String> visitedOrigins = new LinkedHashSet<>();
+
+  /**
+   * Create a Chrome driver using the Chrome settings of the configuration. The caller is
+   * responsible for quitting it.
+   */
+  static WebDriver createWebDriver(Configuration config) {
+    ChromeOptions chromeOptions = new ChromeOptions();
+    chromeOptions.setHeadless(config.headless());
+    chromeOptions.addArguments(
+        "--whitelisted-ips", "--disable-extensions", "--no-sandbox", "--disable-logging");
+    if (isNotBlank(config.chromeDriver())) {
+      System.setProperty("webdriver.chrome.driver", config.chromeDriver());
+    }
+
+    WebDriver driver = new ChromeDriver(chromeOptions);
+    driver.manage().timeouts().implicitlyWait(IMPLICIT_WAIT_SECONDS, TimeUnit.SECONDS);
+    return driver;
+  }
+
+  private static String origin(String url) {
+    URI uri = URI.create(url);
+    return uri.getScheme() + "://" + uri.getRawAuthority() + "/";
+  }
+
   private void checkForBadCredentials(WebDriver driver) {
     Optional<WebElement> oops =
         findOptionalElement(
@@ -62,18 +93,19 @@ public class IdMeOauthRobot {
     if (!startsWith(url, config.authorization().redirectUrl())) {
       waitForPageLoad(driver);
       /* There are two different consent forms ... */
-      if (findOptionalElement(driver, By.className("consent-title")).isPresent()) {
+      if (findOptionalElementOnLoadedPage(driver, By.className("consent-title")).isPresent()) {
         log.info("Granting consent to access data");
         driver.findElement(By.className("button-primary")).click();
         waitForUrlToChange(driver, url);
-      } else if (findOptionalElement(driver, By.id("sr_page_title")).isPresent()) {
+      } else if (findOptionalElementOnLoadedPage(driver, By.id("sr_page_title")).isPresent()) {
         log.info("Granting consent to access data");
         driver.findElement(By.className("btn-primary")).click();
         waitForUrlToChange(driver, url);
       }
       waitForPageLoad(driver);
       /* We sometimes see the server error here. */
-      Optional<WebElement> errorMessage = findOptionalElement(driver, By.id("error-code"));
+      Optional<WebElement> errorMessage =
+          findOptionalElementOnLoadedPage(driver, By.id("error-code"));
       if (errorMessage.isPresent()) {
         throw new IllegalStateException("Failed grant access: " + errorMessage.get().getText());
       }
@@ -100,16 +132,52 @@ public class IdMeOauthRobot {
     waitForUrlToChange(driver, url);
   }
 
+  /**
+   * Clear the cookies and storage of the pages visited while logging in, so that the browser can be
+   * used to log in as a different user. Returns false if the browser could not be cleared and
+   * should not be reused.
+   */
+  boolean clearSession(WebDriver driver) {
+    try {
+      for (String origin : visitedOrigins) {
+        driver.get(origin);
+        driver.manage().deleteAllCookies();
+        ((JavascriptExecutor) driver)
+            .executeScript("window.localStorage.clear(); window.sessionStorage.clear();");
+      }
+      driver.get("about:blank");
+      return true;
+    } catch (WebDriverException e) {
+      log.warn("Failed to clear browser session: {}", e.getMessage());
+      return false;
+    }
+  }
+
   /** Return the authorization code, logging in if necessary. */
   @SneakyThrows
   public String code() {
     if (code != null) {
       return code;
     }
-
-    WebDriver driver = createWebDriver();
+    WebDriver driver = createWebDriver(config);
     try {
+      return code(driver);
+    } finally {
+      driver.close();
+      driver.quit();
+    }
+  }
 
+  /**
+   * Return the authorization code, logging in with the given browser if necessary. The browser is
+   * left open.
+   */
+  @SneakyThrows
+  String code(WebDriver driver) {
+    if (code != null) {
+      return code;
+    }
+    try {
       String url = driver.getCurrentUrl();
       enterCredentials(driver);
       checkForBadCredentials(driver);
@@ -129,33 +197,18 @@ public class IdMeOauthRobot {
     } catch (Exception e) {
       log.error("Failed to acquire access code: {}", e.getMessage());
       throw e;
-    } finally {
-      driver.close();
-      driver.quit();
     }
   }
 
-  private WebDriver createWebDriver() {
-    ChromeOptions chromeOptions = new ChromeOptions();
-    chromeOptions.setHeadless(config.headless());
-    chromeOptions.addArguments(
-        "--whitelisted-ips", "--disable-extensions", "--no-sandbox", "--disable-logging");
-    if (isNotBlank(config.chromeDriver())) {
-      System.setProperty("webdriver.chrome.driver", config.chromeDriver());
-    }
-
-    WebDriver driver = new ChromeDriver(chromeOptions);
-    driver.manage().timeouts().implicitlyWait(1, TimeUnit.SECONDS);
-    return driver;
-  }
-
   private void enterCredentials(WebDriver driver) {
     log.info("Loading {}", config.authorization().asUrl());
     driver.get(config.authorization().asUrl());
+    visitedOrigins.add(origin(driver.getCurrentUrl()));
     log.info("Using Id.me");
     driver.findElement(By.className("idme-signin")).click();
     log.info("Entering credentials");
     WebElement userEmail = driver.findElement(By.id("user_email"));
+    visitedOrigins.add(origin(driver.getCurrentUrl()));
     userEmail.sendKeys(config.user().id());
     WebElement userPassword = driver.findElement(By.id("user_password"));
     userPassword.sendKeys(config.user().password());
@@ -184,11 +237,39 @@ public class IdMeOauthRobot {
     }
   }
 
+  /**
+   * Find an element that may not be present on a page that has finished loading. The implicit wait
+   * is skipped, since it would only add a delay for each element that is absent.
+   */
+  private Optional<WebElement> findOptionalElementOnLoadedPage(WebDriver driver, By by) {
+    driver.manage().timeouts().implicitlyWait(0, TimeUnit.SECONDS);
+    try {
+      return driver.findElements(by).stream().findFirst();
+    } finally {
+      driver.manage().timeouts().implicitlyWait(IMPLICIT_WAIT_SECONDS, TimeUnit.SECONDS);
+    }
+  }
+
   /** Return the token exchange, logging in if necessary. */
   public TokenExchange token() {
     if (token != null) {
       return token;
     }
+    return exchange(code());
+  }
+
+  /**
+   * Return the token exchange, logging in with the given browser if necessary. The browser is left
+   * open.
+   */
+  TokenExchange token(WebDriver driver) {
+    if (token != null) {
+      return token;
+    }
+    return exchange(code(driver));
+  }
+
+  private TokenExchange exchange(String authorizationCode) {
     log.info("Exchanging authorization code for token");
     token =
         RestAssured.given()
@@ -197,7 +278,7 @@ public class IdMeOauthRobot {
             .formParam("client_secret", config.authorization().clientSecret())
             .formParam("grant_type", "authorization_code")
             .formParam("redirect_uri", config.authorization().redirectUrl())
-            .formParam("code", code())
+            .formParam("code", authorizationCode)
             .log()
             .ifValidationFails()
             .post(config.tokenUrl())
@@ -230,7 +311,7 @@ public class IdMeOauthRobot {
   }
 
   @Value
-  @Builder
+  @Builder(toBuilder = true)
   public static class Configuration {
 
     @NonNull Authorization authorization;
@@ -0,0 +1,228 @@
+package gov.va.api.health.sentinel.selenium;
+
+import gov.va.api.health.sentinel.selenium.IdMeOauthRobot.Configuration;
+import gov.va.api.health.sentinel.selenium.IdMeOauthRobot.Configuration.UserCredentials;
+import gov.va.api.health.sentinel.selenium.IdMeOauthRobot.TokenExchange;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Acquires tokens for many users concurrently, using a bounded pool of browsers. Browsers are
+ * started as needed, up to the pool size, and are reused for the next user once their cookies and
+ * storage have been cleared. Starting a browser takes longer than logging in, so reusing them keeps
+ * token setup time flat as the number of users grows.
+ *
+ * <pre>
+ *   Map&lt;String, TokenExchange&gt; tokens =
+ *       TokenAcquirer.builder()
+ *           .configuration(robotConfiguration)
+ *           .browsers(SentinelProperties.threadCount("sentinel.browsers", 4))
+ *           .cache(TokenCache.shared())
+ *           .build()
+ *           .acquire(patients);
+ * </pre>
+ *
+ * <p>Each user is logged in with the authorization and Chrome settings of the configuration. If a
+ * cache is provided, unexpired tokens are taken from it without starting a browser, and new tokens
+ * are added to it. Tokens that the cache refreshes in the background are logged in with the
+ * browsers of the acquisition, which waits for those refreshes before quitting its browsers.
+ */
+@Slf4j
+@Value
+@Builder
+public class TokenAcquirer {
+  @NonNull Configuration configuration;
+
+  @Builder.Default int browsers = 4;
+
+  TokenCache cache;
+
+  /**
+   * Acquire tokens for each of the users, returning them by user ID in the same order as the users.
+   * Every user is attempted. If any fail, an exception naming them is thrown after all are done.
+   */
+  public Map<String, TokenExchange> acquire(Collection<UserCredentials> users) {
+    Run run = new Run();
+    try {
+      return run.acquire(users);
+    } finally {
+      run.quit();
+    }
+  }
+
+  /** The browsers of a single acquisition. */
+  private final class Run {
+    private final BlockingQueue<WebDriver> idle = new LinkedBlockingQueue<>();
+
+    private final List<WebDriver> all = new ArrayList<>();
+
+    private final AtomicInteger started = new AtomicInteger();
+
+    private final List<CompletableFuture<TokenExchange>> refreshes = new ArrayList<>();
+
+    Map<String, TokenExchange> acquire(Collection<UserCredentials> users) {
+      ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, browsers));
+      try {
+        Map<String, Future<TokenExchange>> futures = new LinkedHashMap<>();
+        for (UserCredentials user : users) {
+          futures.put(user.id(), executor.submit(() -> token(user)));
+        }
+        Map<String, TokenExchange> tokens = new LinkedHashMap<>();
+        List<String> failures = new ArrayList<>();
+        Throwable firstFailure = null;
+        for (Map.Entry<String, Future<TokenExchange>> future : futures.entrySet()) {
+          try {
+            tokens.put(future.getKey(), future.getValue().get());
+          } catch (ExecutionException e) {
+            failures.add(future.getKey());
+            firstFailure = firstFailure == null ? e.getCause() : firstFailure;
+          }
+        }
+        if (!failures.isEmpty()) {
+          throw new IllegalStateException(
+              "Failed to acquire tokens for " + failures.size() + " users: " + failures,
+              firstFailure);
+        }
+        return tokens;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while acquiring tokens", e);
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+
+    /** Wait for the background refreshes started by this acquisition, which use its browsers. */
+    private void awaitRefreshes() {
+      List<CompletableFuture<TokenExchange>> pending;
+      synchronized (refreshes) {
+        pending = new ArrayList<>(refreshes);
+      }
+      for (CompletableFuture<TokenExchange> refresh : pending) {
+        try {
+          refresh.get(10, TimeUnit.MINUTES);
+        } catch (ExecutionException | CompletionException e) {
+          /* The cache logs failed refreshes and keeps the current token. */
+        } catch (TimeoutException e) {
+          log.warn("Quitting browsers while a token refresh is still running");
+          return;
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+
+    /** Borrow an idle browser, starting a new one if the pool is not full. */
+    private WebDriver borrow() throws InterruptedException {
+      WebDriver driver = idle.poll();
+      while (driver == null) {
+        if (started.incrementAndGet() <= Math.max(1, browsers)) {
+          log.info("Starting browser {}", started.get());
+          try {
+            driver = IdMeOauthRobot.createWebDriver(configuration);
+          } catch (RuntimeException e) {
+            started.decrementAndGet();
+            throw e;
+          }
+          synchronized (all) {
+            all.add(driver);
+          }
+          return driver;
+        }
+        started.decrementAndGet();
+        /* Check again periodically, in case a retired browser can be replaced. */
+        driver = idle.poll(1, TimeUnit.SECONDS);
+      }
+      return driver;
+    }
+
+    private TokenExchange login(IdMeOauthRobot robot) {
+      WebDriver driver;
+      try {
+        driver = borrow();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for a browser", e);
+      }
+      boolean reusable = false;
+      try {
+        TokenExchange token = robot.token(driver);
+        reusable = robot.clearSession(driver);
+        return token;
+      } finally {
+        if (reusable) {
+          idle.add(driver);
+        } else {
+          retire(driver);
+        }
+      }
+    }
+
+    private void quietlyQuit(WebDriver driver) {
+      try {
+        driver.quit();
+      } catch (RuntimeException e) {
+        log.warn("Failed to quit browser: {}", e.getMessage());
+      }
+    }
+
+    void quit() {
+      awaitRefreshes();
+      synchronized (all) {
+        all.forEach(this::quietlyQuit);
+        all.clear();
+        idle.clear();
+      }
+    }
+
+    /**
+     * Quit a browser that may still be logged in as a user, allowing a new one to take its place.
+     */
+    private void retire(WebDriver driver) {
+      synchronized (all) {
+        all.remove(driver);
+      }
+      quietlyQuit(driver);
+      started.decrementAndGet();
+    }
+
+    private TokenExchange token(UserCredentials user) {
+      IdMeOauthRobot robot = IdMeOauthRobot.of(configuration.toBuilder().user(user).build());
+      if (cache == null) {
+        return login(robot);
+      }
+      TokenCache.Key key = TokenCache.Key.of(user.id(), configuration.authorization().scopes());
+      TokenExchange token = cache.get(key, () -> login(robot));
+      /* A token within its refresh window is returned at once and refreshed in the background. */
+      cache
+          .refreshing(key)
+          .ifPresent(
+              refresh -> {
+                synchronized (refreshes) {
+                  refreshes.add(refresh);
+                }
+              });
+      return token;
+    }
+  }
+}
@@ -0,0 +1,339 @@
+package gov.va.api.health.sentinel.selenium;
+
+import static java.util.stream.Collectors.toList;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gov.va.api.health.autoconfig.configuration.JacksonConfig;
+import gov.va.api.health.sentinel.selenium.IdMeOauthRobot.TokenExchange;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A thread-safe cache of access tokens, keyed by user and scopes. Tokens are refreshed in the
+ * background when they come within the refresh window of their expiration, while callers continue
+ * to use the current token. Once a token has expired, callers wait for the refresh. Concurrent
+ * requests for the same token share a single refresh, so a long crawl logs in once per token
+ * lifetime instead of once per request or not at all. After a background refresh fails, another is
+ * not started until the retry backoff has passed, so a failing identity provider does not receive a
+ * login for every request while the current token is still valid.
+ *
+ * <p>Tokens can optionally be persisted to a local file, so that consecutive runs can reuse a token
+ * that has not yet expired. The file contains secrets and is only readable by the owner, where the
+ * file system supports it.
+ *
+ * <pre>
+ *   ServiceDefinition.builder()
+ *       ...
+ *       .accessToken(TokenCache.shared().accessToken(robotConfiguration))
+ *       .build();
+ * </pre>
+ */
+@Slf4j
+public final class TokenCache {
+  private static final ObjectMapper MAPPER = JacksonConfig.createMapper();
+
+  private static final ExecutorService REFRESHER =
+      Executors.newCachedThreadPool(
+          runnable -> {
+            Thread thread = new Thread(runnable, "sentinel-token-refresh");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  private final Duration refreshBefore;
+
+  private final Duration retryBackoff;
+
+  private final Path file;
+
+  private final Clock clock;
+
+  private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+  @Builder
+  private TokenCache(Duration refreshBefore, Duration retryBackoff, Path file, Clock clock) {
+    this.refreshBefore = refreshBefore == null ? Duration.ofMinutes(5) : refreshBefore;
+    this.retryBackoff = retryBackoff == null ? Duration.ofSeconds(30) : retryBackoff;
+    this.file = file;
+    this.clock = clock == null ? Clock.systemUTC() : clock;
+    load();
+  }
+
+  /** The cache configured by system properties, shared by all service definitions. */
+  public static TokenCache shared() {
+    return Shared.INSTANCE;
+  }
+
+  /** Supply the access token of the user, logging in with a new robot when necessary. */
+  public Supplier<Optional<String>> accessToken(IdMeOauthRobot.Configuration config) {
+    Key key = Key.of(config.user().id(), config.authorization().scopes());
+    return () -> Optional.of(get(key, () -> IdMeOauthRobot.of(config).token()).accessToken());
+  }
+
+  private Instant expiration(TokenExchange token) {
+    return token.expiresAt() <= 0 ? Instant.MAX : Instant.ofEpochSecond(token.expiresAt());
+  }
+
+  /**
+   * Get the token for the key, using the loader to obtain a new token if there is none, or it is
+   * about to expire. Failures are rethrown to every caller waiting for the same refresh.
+   */
+  public TokenExchange get(Key key, Supplier<TokenExchange> loader) {
+    return entries.computeIfAbsent(key, k -> new Entry(k, null)).get(loader);
+  }
+
+  /** Discard the token for the key, e.g. when it has been revoked. */
+  public void invalidate(Key key) {
+    entries.remove(key);
+    save();
+  }
+
+  private void load() {
+    if (file == null || !Files.exists(file)) {
+      return;
+    }
+    try {
+      List<StoredToken> stored =
+          MAPPER.readValue(file.toFile(), new TypeReference<List<StoredToken>>() {});
+      Instant now = clock.instant();
+      for (StoredToken token : stored) {
+        TokenExchange exchange = token.asTokenExchange();
+        if (now.isBefore(expiration(exchange))) {
+          Key key = Key.of(token.user(), token.scopes());
+          entries.put(key, new Entry(key, exchange));
+        }
+      }
+      log.info("Loaded {} unexpired tokens from {}", entries.size(), file);
+    } catch (IOException | RuntimeException e) {
+      log.warn("Ignoring unreadable token cache {}: {}", file, e.getMessage());
+    }
+  }
+
+  /** The refresh in progress for the key, if any. */
+  Optional<CompletableFuture<TokenExchange>> refreshing(Key key) {
+    Entry entry = entries.get(key);
+    return entry == null ? Optional.empty() : entry.refreshing();
+  }
+
+  private synchronized void save() {
+    if (file == null) {
+      return;
+    }
+    List<StoredToken> stored =
+        entries.values().stream()
+            .map(Entry::stored)
+            .filter(Optional::isPresent)
+            .map(Optional::get)
+            .collect(toList());
+    try {
+      Path directory = file.toAbsolutePath().getParent();
+      Files.createDirectories(directory);
+      Path temp = Files.createTempFile(directory, ".tokens", ".tmp");
+      try {
+        if (Files.getFileStore(temp).supportsFileAttributeView("posix")) {
+          Files.setPosixFilePermissions(temp, PosixFilePermissions.fromString("rw-------"));
+        }
+        MAPPER.writeValue(temp.toFile(), stored);
+        try {
+          Files.move(
+              temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+          Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+    } catch (IOException e) {
+      log.warn("Failed to save token cache {}: {}", file, e.getMessage());
+    }
+  }
+
+  /** The current token for a key, and the refresh in progress, if any. */
+  private final class Entry {
+    private final Key key;
+
+    private TokenExchange token;
+
+    private CompletableFuture<TokenExchange> refreshing;
+
+    private Instant failedAt;
+
+    Entry(Key key, TokenExchange token) {
+      this.key = key;
+      this.token = token;
+    }
+
+    TokenExchange get(Supplier<TokenExchange> loader) {
+      CompletableFuture<TokenExchange> refresh;
+      synchronized (this) {
+        Instant now = clock.instant();
+        boolean valid = token != null && now.isBefore(expiration(token));
+        if (valid && now.plus(refreshBefore).isBefore(expiration(token))) {
+          return token;
+        }
+        if (valid && refreshing == null && failedAt != null && now.isBefore(retryAt())) {
+          return token;
+        }
+        if (refreshing == null) {
+          log.info("Refreshing token for {}", key.user());
+          refreshing =
+              CompletableFuture.supplyAsync(loader, REFRESHER)
+                  .whenCompleteAsync(this::refreshed, REFRESHER);
+        }
+        if (valid) {
+          return token;
+        }
+        refresh = refreshing;
+      }
+      try {
+        return refresh.join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw e;
+      }
+    }
+
+    private void refreshed(TokenExchange refreshed, Throwable failure) {
+      synchronized (this) {
+        refreshing = null;
+        if (failure == null) {
+          token = refreshed;
+          failedAt = null;
+        } else {
+          failedAt = clock.instant();
+          log.error(
+              "Failed to refresh token for {}, retrying after {}: {}",
+              key.user(),
+              retryAt(),
+              failure.getMessage());
+        }
+      }
+      if (failure == null) {
+        save();
+      }
+    }
+
+    synchronized Optional<CompletableFuture<TokenExchange>> refreshing() {
+      return Optional.ofNullable(refreshing);
+    }
+
+    private Instant retryAt() {
+      return failedAt.plus(retryBackoff);
+    }
+
+    synchronized Optional<StoredToken> stored() {
+      return token == null ? Optional.empty() : Optional.of(StoredToken.of(key, token));
+    }
+  }
+
+  /** Identifies a token by the user it was issued to and the scopes it grants. */
+  @Value
+  public static class Key {
+    String user;
+
+    SortedSet<String> scopes;
+
+    public static Key of(String user, Collection<String> scopes) {
+      return new Key(user, new TreeSet<>(scopes));
+    }
+  }
+
+  /** Reads the shared cache configuration the first time it is needed. */
+  private static final class Shared {
+    private static final TokenCache INSTANCE = create();
+
+    private static TokenCache create() {
+      String file = System.getProperty("sentinel.token-cache.file");
+      long refreshBefore = Long.getLong("sentinel.token-cache.refresh-before", 300);
+      long retryBackoff = Long.getLong("sentinel.token-cache.retry-backoff", 30);
+      if (isBlank(file)) {
+        log.info("Tokens are not persisted (Override with -Dsentinel.token-cache.file=<file>)");
+      } else {
+        log.info(
+            "Persisting tokens to {} (Override with -Dsentinel.token-cache.file=<file>)", file);
+      }
+      log.info(
+          "Refreshing tokens {} seconds before they expire "
+              + "(Override with -Dsentinel.token-cache.refresh-before=<seconds>)",
+          refreshBefore);
+      log.info(
+          "Retrying failed token refreshes after {} seconds "
+              + "(Override with -Dsentinel.token-cache.retry-backoff=<seconds>)",
+          retryBackoff);
+      return TokenCache.builder()
+          .file(isBlank(file) ? null : Paths.get(file))
+          .refreshBefore(Duration.ofSeconds(refreshBefore))
+          .retryBackoff(Duration.ofSeconds(retryBackoff))
+          .build();
+    }
+  }
+
+  /** The token file format, which does not depend on deserializing the token exchange. */
+  @Value
+  @Builder
+  static class StoredToken {
+    String user;
+
+    List<String> scopes;
+
+    String accessToken;
+
+    String tokenType;
+
+    long expiresAt;
+
+    String scope;
+
+    String idToken;
+
+    String patient;
+
+    String state;
+
+    static StoredToken of(Key key, TokenExchange token) {
+      return StoredToken.builder()
+          .user(key.user())
+          .scopes(key.scopes().stream().collect(toList()))
+          .accessToken(token.accessToken())
+          .tokenType(token.tokenType())
+          .expiresAt(token.expiresAt())
+          .scope(token.scope())
+          .idToken(token.idToken())
+          .patient(token.patient())
+          .state(token.state())
+          .build();
+    }
+
+    TokenExchange asTokenExchange() {
+      return new TokenExchange(
+          null, null, accessToken, tokenType, expiresAt, scope, idToken, patient, state);
+    }
+  }
+}
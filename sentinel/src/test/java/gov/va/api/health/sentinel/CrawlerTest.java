@@ -0,0 +1,55 @@
+package gov.va.api.health.sentinel;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import gov.va.api.health.autoconfig.configuration.JacksonConfig;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.SneakyThrows;
+import org.junit.Test;
+
+public class CrawlerTest {
+  private static final String BASE = "http://localhost:8090/api/";
+
+  private static final String PUBLIC = "https://api.va.gov/services/argonaut/v0/";
+
+  @Test
+  @SneakyThrows
+  public void linksAreCollectedFromReferencesFullUrlsAndBundleLinks() {
+    JsonNode bundle =
+        JacksonConfig.readerFor(JsonNode.class)
+            .readValue(
+                "{\"resourceType\":\"Bundle\","
+                    + "\"link\":[{\"relation\":\"next\",\"url\":\"Patient?page=2\"}],"
+                    + "\"entry\":[{\"fullUrl\":\"Patient/1\",\"resource\":{"
+                    + "\"url\":\"not-a-link\","
+                    + "\"managingOrganization\":{\"reference\":\"Organization/2\"}}}]}");
+    List<String> links = new ArrayList<>();
+    Crawler.collectLinks(bundle, links);
+    assertThat(links).containsExactlyInAnyOrder("Patient?page=2", "Patient/1", "Organization/2");
+  }
+
+  @Test
+  public void linksOffTheServiceAreNotFollowed() {
+    assertThat(Crawler.resolve(BASE, PUBLIC, "https://example.com/Patient/1")).isNull();
+    assertThat(Crawler.resolve(BASE, PUBLIC, "http://localhost:8090/other/Patient/1")).isNull();
+    assertThat(Crawler.resolve(BASE, PUBLIC, "urn:uuid:1")).isNull();
+    assertThat(Crawler.resolve(BASE, PUBLIC, "#contained")).isNull();
+    assertThat(Crawler.resolve(BASE, PUBLIC, " ")).isNull();
+  }
+
+  @Test
+  public void publicUrlsAreRewrittenToTheService() {
+    assertThat(Crawler.resolve(BASE, PUBLIC, PUBLIC + "Patient/1")).isEqualTo(BASE + "Patient/1");
+    assertThat(Crawler.resolve(BASE, null, PUBLIC + "Patient/1")).isNull();
+  }
+
+  @Test
+  public void relativeLinksAreResolvedAgainstTheService() {
+    assertThat(Crawler.resolve(BASE, PUBLIC, "Patient/1")).isEqualTo(BASE + "Patient/1");
+    assertThat(Crawler.resolve(BASE, PUBLIC, "/Observation?patient=1"))
+        .isEqualTo(BASE + "Observation?patient=1");
+    assertThat(Crawler.resolve(BASE, PUBLIC, BASE + "Patient/1")).isEqualTo(BASE + "Patient/1");
+  }
+}
@@ -0,0 +1,42 @@
+package gov.va.api.health.sentinel;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class LoadTestTest {
+  @Test
+  public void idsAreTemplated() {
+    assertThat(LoadTest.template("/api/Patient/1011537977V693883")).isEqualTo("/api/Patient/{id}");
+    assertThat(LoadTest.template("/api/Patient/1011537977V693883/$everything"))
+        .isEqualTo("/api/Patient/{id}/$everything");
+  }
+
+  @Test
+  public void pathsWithoutIdsAreUnchanged() {
+    assertThat(LoadTest.template("/api/metadata")).isEqualTo("/api/metadata");
+    assertThat(LoadTest.template("/api/Patient/")).isEqualTo("/api/Patient/");
+  }
+
+  @Test
+  public void queryValuesAreTemplated() {
+    assertThat(LoadTest.template("/api/Observation?patient=1011537977V693883&_count=15"))
+        .isEqualTo("/api/Observation?patient={}&_count={}");
+  }
+
+  @Test
+  public void schemeAndHostAreRemoved() {
+    assertThat(LoadTest.template("https://localhost:8090/api/Patient/1"))
+        .isEqualTo("/api/Patient/{id}");
+  }
+
+  @Test
+  public void versionsAreNotTemplated() {
+    assertThat(LoadTest.template("/services/argonaut/v0/Patient/123"))
+        .isEqualTo("/services/argonaut/v0/Patient/{id}");
+    assertThat(LoadTest.template("/dstu2/Patient/abc-def")).isEqualTo("/dstu2/Patient/{id}");
+    assertThat(LoadTest.template("/api/r4/metadata")).isEqualTo("/api/r4/metadata");
+    assertThat(LoadTest.template("/api/v1/Observation/_search?patient=1"))
+        .isEqualTo("/api/v1/Observation/_search?patient={}");
+  }
+}
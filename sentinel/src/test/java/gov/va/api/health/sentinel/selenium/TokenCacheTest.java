@@ -0,0 +1,214 @@
+package gov.va.api.health.sentinel.selenium;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import gov.va.api.health.sentinel.selenium.IdMeOauthRobot.TokenExchange;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import lombok.SneakyThrows;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TokenCacheTest {
+  private static final TokenCache.Key KEY =
+      TokenCache.Key.of("user", Collections.singletonList("patient/Patient.read"));
+
+  @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+  private final MutableClock clock = new MutableClock(Instant.ofEpochSecond(1_000_000));
+
+  private final AtomicInteger loads = new AtomicInteger();
+
+  private static Supplier<TokenExchange> failing() {
+    return () -> {
+      throw new IllegalStateException("login failed");
+    };
+  }
+
+  private TokenCache cache(Path file) {
+    return TokenCache.builder()
+        .clock(clock)
+        .refreshBefore(Duration.ofMinutes(5))
+        .retryBackoff(Duration.ofSeconds(30))
+        .file(file)
+        .build();
+  }
+
+  @Test
+  @SneakyThrows
+  public void concurrentCallersShareOneRefresh() {
+    TokenCache cache = cache(null);
+    CountDownLatch release = new CountDownLatch(1);
+    Supplier<TokenExchange> loader =
+        () -> {
+          loads.incrementAndGet();
+          try {
+            release.await(10, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return token("a", Duration.ofHours(1));
+        };
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<TokenExchange>> tokens = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        tokens.add(executor.submit(() -> cache.get(KEY, loader)));
+      }
+      while (!cache.refreshing(KEY).isPresent()) {
+        Thread.sleep(1);
+      }
+      release.countDown();
+      for (Future<TokenExchange> token : tokens) {
+        assertThat(token.get(10, TimeUnit.SECONDS).accessToken()).isEqualTo("a");
+      }
+    } finally {
+      release.countDown();
+      executor.shutdownNow();
+    }
+    assertThat(loads.get()).isEqualTo(1);
+  }
+
+  private Supplier<TokenExchange> counted(TokenExchange token) {
+    return () -> {
+      loads.incrementAndGet();
+      return token;
+    };
+  }
+
+  @Test
+  public void expiredTokensAreNotLoaded() {
+    Path file = folder.getRoot().toPath().resolve("tokens.json");
+    TokenCache.Key longLived = TokenCache.Key.of("long", Collections.singletonList("launch"));
+    TokenCache cache = cache(file);
+    cache.get(KEY, () -> token("short", Duration.ofMinutes(10)));
+    finishRefresh(cache, KEY);
+    cache.get(longLived, () -> token("long", Duration.ofHours(1)));
+    finishRefresh(cache, longLived);
+    clock.advance(Duration.ofMinutes(20));
+    TokenCache reloaded = cache(file);
+    assertThat(reloaded.get(longLived, failing()).accessToken()).isEqualTo("long");
+    assertThat(reloaded.get(KEY, counted(token("new", Duration.ofHours(1)))).accessToken())
+        .isEqualTo("new");
+    assertThat(loads.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void expiredTokensWaitForTheRefresh() {
+    TokenCache cache = cache(null);
+    cache.get(KEY, () -> token("old", Duration.ofMinutes(10)));
+    finishRefresh(cache, KEY);
+    clock.advance(Duration.ofMinutes(11));
+    assertThat(cache.get(KEY, () -> token("new", Duration.ofHours(1))).accessToken())
+        .isEqualTo("new");
+  }
+
+  @Test
+  public void failedRefreshesAreNotRetriedUntilTheBackoffHasPassed() {
+    TokenCache cache = cache(null);
+    cache.get(KEY, () -> token("old", Duration.ofMinutes(10)));
+    finishRefresh(cache, KEY);
+    clock.advance(Duration.ofMinutes(6));
+    assertThat(cache.get(KEY, failing()).accessToken()).isEqualTo("old");
+    finishRefresh(cache, KEY);
+    Supplier<TokenExchange> loader = counted(token("new", Duration.ofHours(1)));
+    clock.advance(Duration.ofSeconds(29));
+    assertThat(cache.get(KEY, loader).accessToken()).isEqualTo("old");
+    assertThat(cache.refreshing(KEY)).isEmpty();
+    assertThat(loads.get()).isZero();
+    clock.advance(Duration.ofSeconds(1));
+    assertThat(cache.get(KEY, loader).accessToken()).isEqualTo("old");
+    finishRefresh(cache, KEY);
+    assertThat(loads.get()).isEqualTo(1);
+    assertThat(cache.get(KEY, failing()).accessToken()).isEqualTo("new");
+  }
+
+  /** Wait for the refresh of the key, if any, ignoring its failure. */
+  private void finishRefresh(TokenCache cache, TokenCache.Key key) {
+    cache.refreshing(key).ifPresent(refresh -> refresh.handle((token, failure) -> token).join());
+  }
+
+  @Test
+  @SneakyThrows
+  public void staleTokensAreUsedWhileRefreshing() {
+    TokenCache cache = cache(null);
+    cache.get(KEY, () -> token("old", Duration.ofMinutes(10)));
+    finishRefresh(cache, KEY);
+    clock.advance(Duration.ofMinutes(6));
+    CountDownLatch release = new CountDownLatch(1);
+    Supplier<TokenExchange> loader =
+        () -> {
+          try {
+            release.await(10, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return token("new", Duration.ofHours(1));
+        };
+    try {
+      assertThat(cache.get(KEY, loader).accessToken()).isEqualTo("old");
+      assertThat(cache.refreshing(KEY)).isPresent();
+      assertThat(cache.get(KEY, failing()).accessToken()).isEqualTo("old");
+    } finally {
+      release.countDown();
+    }
+    finishRefresh(cache, KEY);
+    assertThat(cache.get(KEY, failing()).accessToken()).isEqualTo("new");
+  }
+
+  private TokenExchange token(String accessToken, Duration lifetime) {
+    return new TokenExchange(
+        null,
+        null,
+        accessToken,
+        "Bearer",
+        clock.instant().plus(lifetime).getEpochSecond(),
+        "patient/Patient.read",
+        null,
+        null,
+        null);
+  }
+
+  /** A clock that only moves when told to. */
+  private static final class MutableClock extends Clock {
+    private volatile Instant now;
+
+    MutableClock(Instant now) {
+      this.now = now;
+    }
+
+    void advance(Duration duration) {
+      now = now.plus(duration);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Instant instant() {
+      return now;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.StreamUtils;
+
+/**
+ * A response whose status, headers, and body have been read completely into memory, so that it can
+ * be handed to any number of callers. Each copy has its own headers and body stream.
+ */
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+class BufferedClientHttpResponse implements ClientHttpResponse {
+  private final int status;
+
+  private final String statusText;
+
+  private final HttpHeaders headers;
+
+  private final byte[] body;
+
+  /** Create a response with the given parts. The headers are copied. */
+  static BufferedClientHttpResponse of(
+      int status, String statusText, HttpHeaders headers, byte[] body) {
+    HttpHeaders copy = new HttpHeaders();
+    copy.putAll(headers);
+    return new BufferedClientHttpResponse(status, statusText, copy, body);
+  }
+
+  /** Read the response completely, then close it. */
+  static BufferedClientHttpResponse read(ClientHttpResponse response) throws IOException {
+    try {
+      return of(
+          response.getRawStatusCode(),
+          response.getStatusText(),
+          response.getHeaders(),
+          StreamUtils.copyToByteArray(response.getBody()));
+    } finally {
+      response.close();
+    }
+  }
+
+  /** The body, which must not be modified. */
+  byte[] body() {
+    return body;
+  }
+
+  @Override
+  public void close() {
+    /* Nothing to release. */
+  }
+
+  /** Create an independent copy for another caller. */
+  BufferedClientHttpResponse copy() {
+    return of(status, statusText, headers, body);
+  }
+
+  @Override
+  public InputStream getBody() {
+    return new ByteArrayInputStream(body);
+  }
+
+  @Override
+  public HttpHeaders getHeaders() {
+    return headers;
+  }
+
+  @Override
+  public int getRawStatusCode() {
+    return status;
+  }
+
+  @Override
+  public HttpStatus getStatusCode() {
+    return HttpStatus.valueOf(status);
+  }
+
+  @Override
+  public String getStatusText() {
+    return statusText;
+  }
+}
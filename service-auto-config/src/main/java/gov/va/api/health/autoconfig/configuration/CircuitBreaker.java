@@ -0,0 +1,189 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import java.util.function.LongSupplier;
+
+/**
+ * A count based circuit breaker. While closed, the outcomes of the most recent requests are kept in
+ * a ring buffer. Once enough requests have been recorded, the circuit opens if the percentage of
+ * failed or slow requests reaches its threshold. An open circuit rejects requests until the open
+ * duration has passed, then permits a fixed number of probe requests. The circuit closes if the
+ * probes are healthy, otherwise it opens again.
+ *
+ * <p>Requests are guarded by calling {@link #tryAcquire()} and, when permitted, reporting the
+ * outcome with {@link #onResult(long, boolean)} or abandoning it with {@link #release()}.
+ */
+final class CircuitBreaker {
+  private static final byte FAILED = 1;
+
+  private static final byte SLOW = 2;
+
+  private final double failureRateThreshold;
+
+  private final double slowCallRateThreshold;
+
+  private final long slowCallNanos;
+
+  private final int minimumCalls;
+
+  private final long openNanos;
+
+  private final int halfOpenCalls;
+
+  private final LongSupplier nanoTime;
+
+  private final byte[] window;
+
+  private int windowIndex;
+
+  private int windowCalls;
+
+  private int windowFailures;
+
+  private int windowSlowCalls;
+
+  private State state = State.CLOSED;
+
+  private long openedAt;
+
+  private int probesPermitted;
+
+  private int probesCompleted;
+
+  private int probeFailures;
+
+  private int probeSlowCalls;
+
+  private long notPermittedCalls;
+
+  CircuitBreaker(HttpClientProperties config, LongSupplier nanoTime) {
+    failureRateThreshold = config.getCircuitBreakerFailureRateThreshold();
+    slowCallRateThreshold = config.getCircuitBreakerSlowCallRateThreshold();
+    slowCallNanos = config.getCircuitBreakerSlowCallDuration().toNanos();
+    window = new byte[Math.max(1, config.getCircuitBreakerWindowSize())];
+    minimumCalls = Math.min(Math.max(1, config.getCircuitBreakerMinimumCalls()), window.length);
+    openNanos = config.getCircuitBreakerOpenDuration().toNanos();
+    halfOpenCalls = Math.max(1, config.getCircuitBreakerHalfOpenCalls());
+    this.nanoTime = nanoTime;
+  }
+
+  private static double percent(int count, int calls) {
+    return calls == 0 ? 0 : 100.0 * count / calls;
+  }
+
+  private void close() {
+    state = State.CLOSED;
+    windowIndex = 0;
+    windowCalls = 0;
+    windowFailures = 0;
+    windowSlowCalls = 0;
+  }
+
+  private boolean exceedsThresholds(int failures, int slowCalls, int calls) {
+    return percent(failures, calls) >= failureRateThreshold
+        || percent(slowCalls, calls) >= slowCallRateThreshold;
+  }
+
+  /** The percentage of failed requests in the window, or -1 if too few have been recorded. */
+  synchronized double failureRate() {
+    return windowCalls < minimumCalls ? -1 : percent(windowFailures, windowCalls);
+  }
+
+  /** The number of requests rejected because the circuit was not closed. */
+  synchronized long notPermittedCalls() {
+    return notPermittedCalls;
+  }
+
+  /** Record the outcome of a permitted request. */
+  synchronized void onResult(long nanos, boolean failed) {
+    boolean slow = nanos >= slowCallNanos;
+    if (state == State.HALF_OPEN) {
+      probesCompleted++;
+      probeFailures += failed ? 1 : 0;
+      probeSlowCalls += slow ? 1 : 0;
+      if (probesCompleted >= halfOpenCalls) {
+        if (exceedsThresholds(probeFailures, probeSlowCalls, probesCompleted)) {
+          open();
+        } else {
+          close();
+        }
+      }
+      return;
+    }
+    if (state == State.OPEN) {
+      /* Requests that started before the circuit opened do not count towards closing it. */
+      return;
+    }
+    if (windowCalls == window.length) {
+      windowFailures -= window[windowIndex] & FAILED;
+      windowSlowCalls -= (window[windowIndex] & SLOW) >> 1;
+    } else {
+      windowCalls++;
+    }
+    window[windowIndex] = (byte) ((failed ? FAILED : 0) | (slow ? SLOW : 0));
+    windowFailures += failed ? 1 : 0;
+    windowSlowCalls += slow ? 1 : 0;
+    windowIndex = (windowIndex + 1) % window.length;
+    if (windowCalls >= minimumCalls
+        && exceedsThresholds(windowFailures, windowSlowCalls, windowCalls)) {
+      open();
+    }
+  }
+
+  private void open() {
+    state = State.OPEN;
+    openedAt = nanoTime.getAsLong();
+  }
+
+  /** Return the permit of a request that ended without an outcome, e.g. it was cancelled. */
+  synchronized void release() {
+    if (state == State.HALF_OPEN && probesPermitted > probesCompleted) {
+      probesPermitted--;
+    }
+  }
+
+  /** The percentage of slow requests in the window, or -1 if too few have been recorded. */
+  synchronized double slowCallRate() {
+    return windowCalls < minimumCalls ? -1 : percent(windowSlowCalls, windowCalls);
+  }
+
+  /** The current state, moving an open circuit to half open once the open duration has passed. */
+  synchronized State state() {
+    if (state == State.OPEN && nanoTime.getAsLong() - openedAt >= openNanos) {
+      state = State.HALF_OPEN;
+      probesPermitted = 0;
+      probesCompleted = 0;
+      probeFailures = 0;
+      probeSlowCalls = 0;
+    }
+    return state;
+  }
+
+  /** Determine whether a request may proceed. */
+  synchronized boolean tryAcquire() {
+    switch (state()) {
+      case CLOSED:
+        return true;
+      case HALF_OPEN:
+        if (probesPermitted < halfOpenCalls) {
+          probesPermitted++;
+          return true;
+        }
+        break;
+      default:
+        break;
+    }
+    notPermittedCalls++;
+    return false;
+  }
+
+  /** The number of requests in the window. */
+  synchronized int windowCalls() {
+    return windowCalls;
+  }
+
+  enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+}
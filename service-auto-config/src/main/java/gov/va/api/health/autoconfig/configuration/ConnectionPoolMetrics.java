@@ -0,0 +1,63 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.function.ToDoubleFunction;
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.pool.ConnPoolControl;
+import org.apache.http.pool.PoolStats;
+
+/**
+ * Publishes the total statistics of an Apache HTTP client connection pool. Each gauge is tagged
+ * with the name of the client, so multiple pools can be reported to the same registry.
+ */
+@AllArgsConstructor(staticName = "of")
+class ConnectionPoolMetrics implements MeterBinder {
+  @NonNull private final String name;
+
+  @NonNull private final ConnPoolControl<HttpRoute> pool;
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Tags tags = Tags.of(Tag.of("httpclient", name));
+    gauge(registry, "max", "Maximum number of allowed connections", tags, PoolStats::getMax);
+    gauge(
+        registry,
+        "connections",
+        "Number of connections leased to callers",
+        tags.and("state", "leased"),
+        PoolStats::getLeased);
+    gauge(
+        registry,
+        "connections",
+        "Number of idle connections available for reuse",
+        tags.and("state", "available"),
+        PoolStats::getAvailable);
+    gauge(
+        registry,
+        "pending",
+        "Number of callers waiting for a connection",
+        tags,
+        PoolStats::getPending);
+  }
+
+  private void gauge(
+      MeterRegistry registry,
+      String suffix,
+      String description,
+      Tags tags,
+      ToDoubleFunction<PoolStats> stat) {
+    Gauge.builder(
+            "httpcomponents.httpclient.pool.total." + suffix,
+            pool,
+            p -> stat.applyAsDouble(p.getTotalStats()))
+        .description(description)
+        .tags(tags)
+        .register(registry);
+  }
+}
@@ -0,0 +1,222 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+
+/**
+ * Logs failed requests made by the secure clients without slowing down the calling thread. Each
+ * failure is logged as a single event, on a background thread, with request and response bodies
+ * truncated per {@link HttpClientProperties#getFailureLogBodyBytes()}.
+ *
+ * <p>During an outage of a downstream service, every request may fail. Failures are sampled and
+ * rate limited, and failures that arrive while the background queue is full are dropped, so logging
+ * cannot become the bottleneck. The number of failures that were not logged is reported with the
+ * next failure that is.
+ */
+@Slf4j
+class FailureLog {
+  private final int maxBodyBytes;
+
+  private final double sampleRate;
+
+  private final int permitsPerSecond;
+
+  private final ExecutorService executor;
+
+  private final AtomicLong suppressed = new AtomicLong();
+
+  private double permits;
+
+  private long lastRefill;
+
+  private FailureLog(int maxBodyBytes, double sampleRate, int permitsPerSecond, int queueSize) {
+    this.maxBodyBytes = Math.max(0, maxBodyBytes);
+    this.sampleRate = sampleRate;
+    this.permitsPerSecond = Math.max(0, permitsPerSecond);
+    this.permits = this.permitsPerSecond;
+    this.lastRefill = System.nanoTime();
+    ThreadPoolExecutor pool =
+        new ThreadPoolExecutor(
+            1,
+            1,
+            60,
+            TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, queueSize)),
+            runnable -> {
+              Thread thread = new Thread(runnable, "http-client-failure-log");
+              thread.setDaemon(true);
+              return thread;
+            });
+    pool.allowCoreThreadTimeOut(true);
+    this.executor = pool;
+  }
+
+  /** Create a failure log configured by the given properties. */
+  static FailureLog of(HttpClientProperties config) {
+    return new FailureLog(
+        config.getFailureLogBodyBytes(),
+        config.getFailureLogSampleRate(),
+        config.getFailureLogsPerSecond(),
+        config.getFailureLogQueueSize());
+  }
+
+  /** Decode no more than the maximum number of logged bytes of the given body. */
+  String body(byte[] body) {
+    if (body == null) {
+      return "";
+    }
+    return truncated(
+        new String(body, 0, Math.min(body.length, maxBodyBytes), StandardCharsets.UTF_8),
+        body.length);
+  }
+
+  /** Decode the logged prefix of a body of which the given total number of bytes was read. */
+  String body(byte[] prefix, long totalBytes) {
+    return truncated(
+        new String(prefix, 0, Math.min(prefix.length, maxBodyBytes), StandardCharsets.UTF_8),
+        totalBytes);
+  }
+
+  /** The maximum number of bytes of a body that will be logged. */
+  int maxBodyBytes() {
+    return maxBodyBytes;
+  }
+
+  /**
+   * Determine if the next failure should be logged. This is checked before any work is done to
+   * capture the failure. If not permitted, the failure is counted as suppressed.
+   */
+  boolean permit() {
+    if (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+      suppressed.incrementAndGet();
+      return false;
+    }
+    if (!takePermit()) {
+      suppressed.incrementAndGet();
+      return false;
+    }
+    return true;
+  }
+
+  /** Queue the failure to be logged in the background, dropping it if the queue is full. */
+  void submit(Failure failure) {
+    try {
+      executor.execute(() -> log.error("{}", failure.describe(suppressed.getAndSet(0))));
+    } catch (RejectedExecutionException e) {
+      suppressed.incrementAndGet();
+    }
+  }
+
+  private synchronized boolean takePermit() {
+    long now = System.nanoTime();
+    permits =
+        Math.min(
+            permitsPerSecond,
+            permits + (now - lastRefill) * permitsPerSecond / (double) TimeUnit.SECONDS.toNanos(1));
+    lastRefill = now;
+    if (permits < 1) {
+      return false;
+    }
+    permits--;
+    return true;
+  }
+
+  private String truncated(String text, long originalLength) {
+    return originalLength > maxBodyBytes ? text + "... (" + originalLength + " bytes total)" : text;
+  }
+
+  /**
+   * The details of a failed request captured on the calling thread. Headers are copied when they
+   * are captured, with credentials masked, since the failure is described later on the background
+   * thread.
+   */
+  @Value
+  @Builder
+  static class Failure {
+    private static final List<String> MASKED_HEADERS =
+        Arrays.asList(
+            HttpHeaders.AUTHORIZATION,
+            HttpHeaders.PROXY_AUTHORIZATION,
+            HttpHeaders.COOKIE,
+            HttpHeaders.SET_COOKIE);
+
+    String method;
+
+    String uri;
+
+    HttpHeaders requestHeaders;
+
+    String requestBody;
+
+    int status;
+
+    String reason;
+
+    HttpHeaders responseHeaders;
+
+    String responseBody;
+
+    private static HttpHeaders masked(HttpHeaders headers) {
+      if (headers == null) {
+        return null;
+      }
+      HttpHeaders masked = new HttpHeaders();
+      headers.forEach((name, values) -> masked.put(name, new ArrayList<>(values)));
+      for (String name : MASKED_HEADERS) {
+        if (masked.containsKey(name)) {
+          masked.set(name, "*****");
+        }
+      }
+      return masked;
+    }
+
+    /** Describe the failure as a single, multi-line message. */
+    String describe(long suppressed) {
+      StringBuilder message = new StringBuilder(256);
+      message
+          .append("Request failed: ")
+          .append(method)
+          .append(' ')
+          .append(uri)
+          .append(" -> ")
+          .append(status)
+          .append(' ')
+          .append(reason);
+      message.append("\nRequest headers: ").append(requestHeaders);
+      if (requestBody != null && !requestBody.isEmpty()) {
+        message.append("\nRequest body:\n").append(requestBody);
+      }
+      message.append("\nResponse headers: ").append(responseHeaders);
+      message.append("\nResponse body:\n").append(responseBody);
+      if (suppressed > 0) {
+        message.append("\n(").append(suppressed).append(" other failures were not logged)");
+      }
+      return message.toString();
+    }
+
+    static class FailureBuilder {
+      FailureBuilder requestHeaders(HttpHeaders headers) {
+        this.requestHeaders = masked(headers);
+        return this;
+      }
+
+      FailureBuilder responseHeaders(HttpHeaders headers) {
+        this.responseHeaders = masked(headers);
+        return this;
+      }
+    }
+  }
+}
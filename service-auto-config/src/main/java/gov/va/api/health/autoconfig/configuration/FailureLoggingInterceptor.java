@@ -0,0 +1,52 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import java.io.IOException;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * Records failed requests to a {@link FailureLog}. Only a bounded prefix of the response body is
+ * read to be logged, the rest of the body is still available to the caller. Successful requests are
+ * logged at debug level.
+ */
+@Slf4j
+@AllArgsConstructor(staticName = "of")
+class FailureLoggingInterceptor implements ClientHttpRequestInterceptor {
+  private final FailureLog failureLog;
+
+  @Override
+  public ClientHttpResponse intercept(
+      HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+    log.debug("{} {}", request.getMethod(), request.getURI());
+    ClientHttpResponse response = execution.execute(request, body);
+    if (!response.getStatusCode().isError()) {
+      log.debug(
+          "Response from {} {} is {}",
+          request.getMethod(),
+          request.getURI(),
+          response.getStatusCode());
+      return response;
+    }
+    if (!failureLog.permit()) {
+      return response;
+    }
+    PeekingClientHttpResponse peeking =
+        PeekingClientHttpResponse.of(response, failureLog.maxBodyBytes());
+    failureLog.submit(
+        FailureLog.Failure.builder()
+            .method(String.valueOf(request.getMethod()))
+            .uri(String.valueOf(request.getURI()))
+            .requestHeaders(request.getHeaders())
+            .requestBody(failureLog.body(body))
+            .status(response.getRawStatusCode())
+            .reason(response.getStatusCode().getReasonPhrase())
+            .responseHeaders(response.getHeaders())
+            .responseBody(peeking.peek())
+            .build());
+    return peeking;
+  }
+}
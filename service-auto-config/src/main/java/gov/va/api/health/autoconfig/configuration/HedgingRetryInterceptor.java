@@ -0,0 +1,430 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * Reduces the tail latency of idempotent requests, GET and HEAD, by hedging and retrying them. Both
+ * are disabled by default, see {@link HttpClientProperties}.
+ *
+ * <p>Attempts of hedged requests are sent from a pool that is bounded by the size of the connection
+ * pool, since more concurrent attempts would only wait for a connection. If the first attempt has
+ * not completed within a percentile of the recent response times of its host, a hedge is sent. The
+ * first attempt to respond successfully is used, without waiting for the other. A response that is
+ * not used is closed when it arrives, releasing its connection. While the pool is full, the first
+ * attempt is sent by the calling thread and is not hedged.
+ *
+ * <p>Requests that fail with an IOException, or a 502, 503, or 504 status, are retried after an
+ * exponential backoff with full jitter. Hedges and retries both draw from a {@link RetryBudget}, so
+ * a struggling downstream service is not overwhelmed by extra attempts.
+ *
+ * <p>Each attempt re-executes the rest of the interceptor chain, so this must be the last
+ * interceptor of a rest template. Interceptors before it see a single request and response.
+ */
+@Slf4j
+public class HedgingRetryInterceptor implements ClientHttpRequestInterceptor, MeterBinder {
+  private static final Set<HttpMethod> IDEMPOTENT = EnumSet.of(HttpMethod.GET, HttpMethod.HEAD);
+
+  private static final int[] RETRYABLE_STATUSES = {502, 503, 504};
+
+  private final CompositeMeterRegistry meters = new CompositeMeterRegistry();
+
+  private final HttpClientProperties config;
+
+  private final RetryBudget budget;
+
+  private final LongSupplier nanoTime;
+
+  private final Map<String, ResponseTimes> responseTimes = new ConcurrentHashMap<>();
+
+  private final ThreadPoolExecutor executor;
+
+  private final Counter retries;
+
+  private final Counter retriesDenied;
+
+  private final Counter hedgesDenied;
+
+  private final Counter hedgesWon;
+
+  private final Counter hedgesLost;
+
+  private final Counter hedgesRejected;
+
+  /** Create an interceptor for the named client. */
+  public HedgingRetryInterceptor(String name, HttpClientProperties config) {
+    this(name, config, RetryBudget.of(config), System::nanoTime);
+  }
+
+  HedgingRetryInterceptor(
+      String name, HttpClientProperties config, RetryBudget budget, LongSupplier nanoTime) {
+    this.config = config;
+    this.budget = budget;
+    this.nanoTime = nanoTime;
+    executor =
+        new ThreadPoolExecutor(
+            0,
+            Math.max(1, config.getMaxConnections()),
+            60,
+            TimeUnit.SECONDS,
+            new SynchronousQueue<>(),
+            daemon("http-client-attempt-" + name),
+            new ThreadPoolExecutor.AbortPolicy());
+    retries =
+        Counter.builder("http.client.retries")
+            .description("Number of requests sent again after a failure")
+            .tag("httpclient", name)
+            .register(meters);
+    retriesDenied = denied(name, "retry");
+    hedgesDenied = denied(name, "hedge");
+    hedgesWon = hedges(name, "won");
+    hedgesLost = hedges(name, "lost");
+    hedgesRejected =
+        Counter.builder("http.client.hedges.rejected")
+            .description("Number of hedges not sent because the attempt pool was full")
+            .tag("httpclient", name)
+            .register(meters);
+    Gauge.builder("http.client.retry.budget.available", budget, RetryBudget::available)
+        .description("Number of retries and hedges that may currently be sent")
+        .tag("httpclient", name)
+        .register(meters);
+  }
+
+  private static void closeQuietly(ClientHttpResponse response) {
+    try {
+      response.close();
+    } catch (RuntimeException e) {
+      log.debug("Failed to close abandoned response: {}", e.getMessage());
+    }
+  }
+
+  private static ThreadFactory daemon(String name) {
+    return runnable -> {
+      Thread thread = new Thread(runnable, name);
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  private static boolean retryable(int status) {
+    return Arrays.stream(RETRYABLE_STATUSES).anyMatch(s -> s == status);
+  }
+
+  private static ClientHttpResponse unwrap(Throwable failure) throws IOException {
+    Throwable cause = failure;
+    while ((cause instanceof ExecutionException
+            || cause instanceof CompletionException
+            || cause instanceof UncheckedIOException)
+        && cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+    if (cause instanceof IOException) {
+      throw (IOException) cause;
+    }
+    if (cause instanceof RuntimeException) {
+      throw (RuntimeException) cause;
+    }
+    if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+    throw new IOException(cause);
+  }
+
+  private ClientHttpResponse await(CompletableFuture<ClientHttpResponse> response)
+      throws IOException {
+    try {
+      return response.get();
+    } catch (ExecutionException e) {
+      return unwrap(e);
+    } catch (InterruptedException e) {
+      if (!response.cancel(true)) {
+        response.thenAccept(HedgingRetryInterceptor::closeQuietly);
+      }
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for a response");
+    }
+  }
+
+  /** Sleep before the given retry, for a random time up to the exponential backoff. */
+  private void backoff(int retry) throws InterruptedIOException {
+    long initial = config.getRetryInitialBackoff().toNanos();
+    long max = config.getRetryMaxBackoff().toNanos();
+    long ceiling = (long) Math.min(max, initial * Math.pow(2, retry));
+    long sleep = ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    try {
+      TimeUnit.NANOSECONDS.sleep(sleep);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting to retry");
+    }
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    meters.add(registry);
+  }
+
+  private Counter denied(String name, String attempt) {
+    return Counter.builder("http.client.retry.budget.exhausted")
+        .description("Number of retries or hedges not sent because the budget was exhausted")
+        .tags("httpclient", name, "attempt", attempt)
+        .register(meters);
+  }
+
+  /** True if either hedging or retries are enabled. */
+  public boolean enabled() {
+    return config.isHedgingEnabled() || config.getMaxRetries() > 0;
+  }
+
+  private ClientHttpResponse exchange(
+      HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+    ResponseTimes times =
+        responseTimes.computeIfAbsent(
+            HostResilienceInterceptor.key(request.getURI()), k -> newTimes());
+    if (!config.isHedgingEnabled()) {
+      return timed(request, body, execution, times);
+    }
+    CompletableFuture<ClientHttpResponse> primary = submit(request, body, execution, times);
+    if (primary == null) {
+      return timed(request, body, execution, times);
+    }
+    try {
+      return primary.get(times.hedgeDelay(), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      log.debug("Hedging {} {}", request.getMethod(), request.getURI());
+    } catch (ExecutionException e) {
+      return unwrap(e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      primary.thenAccept(HedgingRetryInterceptor::closeQuietly);
+      throw new InterruptedIOException("Interrupted while waiting for a response");
+    }
+    if (!budget.tryWithdraw()) {
+      hedgesDenied.increment();
+      return await(primary);
+    }
+    CompletableFuture<ClientHttpResponse> hedge = submit(request, body, execution, times);
+    if (hedge == null) {
+      hedgesRejected.increment();
+      return await(primary);
+    }
+    Race race = new Race();
+    primary.whenComplete((response, failure) -> race.finish(response, failure, false));
+    hedge.whenComplete((response, failure) -> race.finish(response, failure, true));
+    return await(race.winner);
+  }
+
+  private Counter hedges(String name, String outcome) {
+    return Counter.builder("http.client.hedges")
+        .description("Number of hedged requests sent, by whether the hedge responded first")
+        .tags("httpclient", name, "outcome", outcome)
+        .register(meters);
+  }
+
+  @Override
+  public ClientHttpResponse intercept(
+      HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+    if (!enabled() || !IDEMPOTENT.contains(request.getMethod())) {
+      return execution.execute(request, body);
+    }
+    budget.deposit();
+    for (int retry = 0; ; retry++) {
+      ClientHttpResponse response;
+      try {
+        response = exchange(request, body, execution);
+      } catch (InterruptedIOException e) {
+        throw e;
+      } catch (IOException e) {
+        if (!mayRetry(retry)) {
+          throw e;
+        }
+        log.debug("Retrying {} {}: {}", request.getMethod(), request.getURI(), e.getMessage());
+        backoff(retry);
+        continue;
+      }
+      if (!retryable(response.getRawStatusCode()) || !mayRetry(retry)) {
+        return response;
+      }
+      log.debug(
+          "Retrying {} {}: {}", request.getMethod(), request.getURI(), response.getRawStatusCode());
+      closeQuietly(response);
+      backoff(retry);
+    }
+  }
+
+  private boolean mayRetry(int retry) {
+    if (retry >= config.getMaxRetries()) {
+      return false;
+    }
+    if (!budget.tryWithdraw()) {
+      retriesDenied.increment();
+      return false;
+    }
+    retries.increment();
+    return true;
+  }
+
+  private ResponseTimes newTimes() {
+    return new ResponseTimes(config.getHedgeDelayPercentile(), config.getHedgeMinDelay().toNanos());
+  }
+
+  /** Send an attempt from the pool, or return null if the pool is full. */
+  private CompletableFuture<ClientHttpResponse> submit(
+      HttpRequest request, byte[] body, ClientHttpRequestExecution execution, ResponseTimes times) {
+    try {
+      return CompletableFuture.supplyAsync(
+          () -> {
+            try {
+              return timed(request, body, execution, times);
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          },
+          executor);
+    } catch (RejectedExecutionException e) {
+      return null;
+    }
+  }
+
+  private ClientHttpResponse timed(
+      HttpRequest request, byte[] body, ClientHttpRequestExecution execution, ResponseTimes times)
+      throws IOException {
+    long start = nanoTime.getAsLong();
+    ClientHttpResponse response = execution.execute(request, body);
+    times.record(nanoTime.getAsLong() - start);
+    return response;
+  }
+
+  /**
+   * The first attempt and the hedge of a request. The first successful response wins. A failure, or
+   * a response with a retryable status, is only used if the other attempt fails too, and the
+   * response is preferred over the failure so the retry loop can inspect its status.
+   */
+  private final class Race {
+    private final CompletableFuture<ClientHttpResponse> winner = new CompletableFuture<>();
+
+    private ClientHttpResponse failedResponse;
+
+    private Throwable failure;
+
+    private int failed;
+
+    synchronized void finish(ClientHttpResponse response, Throwable error, boolean hedge) {
+      if (winner.isDone()) {
+        if (response != null) {
+          closeQuietly(response);
+        }
+        return;
+      }
+      if (response != null && healthy(response)) {
+        (hedge ? hedgesWon : hedgesLost).increment();
+        if (failedResponse != null) {
+          closeQuietly(failedResponse);
+        }
+        winner.complete(response);
+        return;
+      }
+      if (response != null && failedResponse == null) {
+        failedResponse = response;
+      } else if (response != null) {
+        closeQuietly(response);
+      } else {
+        failure = error;
+      }
+      if (++failed == 2) {
+        hedgesLost.increment();
+        if (failedResponse != null) {
+          winner.complete(failedResponse);
+        } else {
+          winner.completeExceptionally(failure);
+        }
+      }
+    }
+
+    private boolean healthy(ClientHttpResponse response) {
+      try {
+        return !retryable(response.getRawStatusCode());
+      } catch (IOException e) {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * The most recent response times of a host, used to choose the hedge delay. Until enough
+   * responses have been timed, the minimum delay is used.
+   */
+  private static final class ResponseTimes {
+    private static final int SAMPLES = 1000;
+
+    private static final int MIN_SAMPLES = 100;
+
+    private final double percentile;
+
+    private final long minDelay;
+
+    private final long[] samples = new long[SAMPLES];
+
+    private int count;
+
+    private int next;
+
+    private int sinceUpdate;
+
+    private long delay;
+
+    ResponseTimes(double percentile, long minDelay) {
+      this.percentile = Math.min(1, Math.max(0, percentile));
+      this.minDelay = minDelay;
+      this.delay = minDelay;
+    }
+
+    /** The time to wait before hedging, which is recalculated every hundred responses. */
+    synchronized long hedgeDelay() {
+      if (count < MIN_SAMPLES || sinceUpdate < MIN_SAMPLES) {
+        return delay;
+      }
+      long[] sorted = Arrays.copyOf(samples, count);
+      Arrays.sort(sorted);
+      int index = (int) Math.min(count - 1, Math.ceil(percentile * count) - 1);
+      delay = Math.max(minDelay, sorted[Math.max(0, index)]);
+      sinceUpdate = 0;
+      return delay;
+    }
+
+    synchronized void record(long nanos) {
+      samples[next] = nanos;
+      next = (next + 1) % SAMPLES;
+      count = Math.min(SAMPLES, count + 1);
+      sinceUpdate++;
+    }
+  }
+}
@@ -0,0 +1,254 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import java.io.IOException;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.RestClientException;
+
+/**
+ * Guards each downstream host with a bulkhead, which limits the number of concurrent requests, and
+ * a {@link CircuitBreaker}, which rejects requests while the host is failing or slow. Requests that
+ * are not permitted fail fast with a {@link CallNotPermitted} exception instead of occupying a
+ * thread and a pooled connection. Both guards are disabled by default, see {@link
+ * HttpClientProperties}.
+ *
+ * <p>A request fails if it throws an IOException or the response status is 5xx. Responses are timed
+ * until their headers have been received. A streamed response body is read after the bulkhead has
+ * been released.
+ *
+ * <p>The state of each host is published as gauges tagged with the name of the client and the host,
+ * and is available from {@link HttpClientResilienceEndpoint}.
+ */
+public class HostResilienceInterceptor implements ClientHttpRequestInterceptor, MeterBinder {
+  private final CompositeMeterRegistry meters = new CompositeMeterRegistry();
+
+  private final String name;
+
+  private final HttpClientProperties config;
+
+  private final LongSupplier nanoTime;
+
+  private final Map<String, Integer> routeMaxConcurrentCalls = new ConcurrentHashMap<>();
+
+  private final Map<String, Host> hosts = new ConcurrentHashMap<>();
+
+  /** Create an interceptor for the named client. */
+  public HostResilienceInterceptor(String name, HttpClientProperties config) {
+    this(name, config, System::nanoTime);
+  }
+
+  HostResilienceInterceptor(String name, HttpClientProperties config, LongSupplier nanoTime) {
+    this.name = name;
+    this.config = config;
+    this.nanoTime = nanoTime;
+    config
+        .getRouteBulkheadMaxConcurrentCalls()
+        .forEach((url, max) -> routeMaxConcurrentCalls.put(key(URI.create(url)), max));
+  }
+
+  /** Identify a host by scheme, host name, and port, e.g. https://example.com:443. */
+  static String key(URI uri) {
+    String scheme = uri.getScheme() == null ? "http" : uri.getScheme().toLowerCase(Locale.ENGLISH);
+    int port = uri.getPort() > 0 ? uri.getPort() : "https".equals(scheme) ? 443 : 80;
+    return scheme + "://" + String.valueOf(uri.getHost()).toLowerCase(Locale.ENGLISH) + ":" + port;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    meters.add(registry);
+  }
+
+  /** The state of the bulkhead and circuit breaker of each host that has been requested. */
+  public Map<String, Map<String, Object>> describe() {
+    Map<String, Map<String, Object>> description = new TreeMap<>();
+    hosts.forEach((key, host) -> description.put(key, host.describe()));
+    return description;
+  }
+
+  /** True if either guard is enabled. */
+  public boolean enabled() {
+    return config.getBulkheadMaxConcurrentCalls() > 0
+        || !routeMaxConcurrentCalls.isEmpty()
+        || config.isCircuitBreakerEnabled();
+  }
+
+  private Host host(URI uri) {
+    return hosts.computeIfAbsent(key(uri), Host::new);
+  }
+
+  @Override
+  public ClientHttpResponse intercept(
+      HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+    if (!enabled()) {
+      return execution.execute(request, body);
+    }
+    Host host = host(request.getURI());
+    host.acquire();
+    long start = nanoTime.getAsLong();
+    boolean completed = false;
+    boolean failed = true;
+    try {
+      ClientHttpResponse response = execution.execute(request, body);
+      completed = true;
+      failed = response.getRawStatusCode() >= 500;
+      return response;
+    } catch (IOException e) {
+      completed = true;
+      throw e;
+    } finally {
+      host.release(completed, nanoTime.getAsLong() - start, failed);
+    }
+  }
+
+  /** Thrown when a request is rejected by a bulkhead or an open circuit. */
+  public static class CallNotPermitted extends RestClientException {
+    CallNotPermitted(String message) {
+      super(message);
+    }
+  }
+
+  /** The guards of a single host. */
+  private final class Host {
+    private final String key;
+
+    private final int maxConcurrentCalls;
+
+    private final Semaphore bulkhead;
+
+    private final CircuitBreaker circuitBreaker;
+
+    private final Counter bulkheadRejections;
+
+    private final Counter circuitBreakerRejections;
+
+    Host(String key) {
+      this.key = key;
+      maxConcurrentCalls =
+          routeMaxConcurrentCalls.getOrDefault(key, config.getBulkheadMaxConcurrentCalls());
+      bulkhead = maxConcurrentCalls > 0 ? new Semaphore(maxConcurrentCalls) : null;
+      circuitBreaker =
+          config.isCircuitBreakerEnabled() ? new CircuitBreaker(config, nanoTime) : null;
+      Tags tags = Tags.of("httpclient", name, "host", key);
+      bulkheadRejections = rejections(tags.and("guard", "bulkhead"));
+      circuitBreakerRejections = rejections(tags.and("guard", "circuit-breaker"));
+      if (bulkhead != null) {
+        Gauge.builder("http.client.bulkhead.available", bulkhead, Semaphore::availablePermits)
+            .description("Number of additional concurrent requests the host may receive")
+            .tags(tags)
+            .register(meters);
+        Gauge.builder("http.client.bulkhead.max", bulkhead, b -> maxConcurrentCalls)
+            .description("Maximum number of concurrent requests the host may receive")
+            .tags(tags)
+            .register(meters);
+      }
+      if (circuitBreaker != null) {
+        for (CircuitBreaker.State state : CircuitBreaker.State.values()) {
+          Gauge.builder(
+                  "http.client.circuit.breaker.state",
+                  circuitBreaker,
+                  c -> c.state() == state ? 1 : 0)
+              .description("1 if the circuit of the host is in the state, otherwise 0")
+              .tags(tags.and("state", state.name().toLowerCase(Locale.ENGLISH)))
+              .register(meters);
+        }
+        Gauge.builder(
+                "http.client.circuit.breaker.failure.rate",
+                circuitBreaker,
+                CircuitBreaker::failureRate)
+            .description("Percentage of recent requests that failed, or -1 if too few were made")
+            .tags(tags)
+            .register(meters);
+        Gauge.builder(
+                "http.client.circuit.breaker.slow.call.rate",
+                circuitBreaker,
+                CircuitBreaker::slowCallRate)
+            .description("Percentage of recent requests that were slow, or -1 if too few were made")
+            .tags(tags)
+            .register(meters);
+      }
+    }
+
+    void acquire() {
+      if (circuitBreaker != null && !circuitBreaker.tryAcquire()) {
+        circuitBreakerRejections.increment();
+        throw new CallNotPermitted("Circuit breaker for " + key + " is " + circuitBreaker.state());
+      }
+      if (bulkhead != null && !tryAcquireBulkhead()) {
+        if (circuitBreaker != null) {
+          circuitBreaker.release();
+        }
+        bulkheadRejections.increment();
+        throw new CallNotPermitted(
+            "Bulkhead for " + key + " is full with " + maxConcurrentCalls + " concurrent requests");
+      }
+    }
+
+    Map<String, Object> describe() {
+      Map<String, Object> description = new LinkedHashMap<>();
+      if (bulkhead != null) {
+        description.put("bulkheadMaxConcurrentCalls", maxConcurrentCalls);
+        description.put("bulkheadAvailableConcurrentCalls", bulkhead.availablePermits());
+        description.put("bulkheadRejectedCalls", (long) bulkheadRejections.count());
+      }
+      if (circuitBreaker != null) {
+        description.put("circuitBreakerState", circuitBreaker.state());
+        description.put("circuitBreakerBufferedCalls", circuitBreaker.windowCalls());
+        description.put("circuitBreakerFailureRate", circuitBreaker.failureRate());
+        description.put("circuitBreakerSlowCallRate", circuitBreaker.slowCallRate());
+        description.put("circuitBreakerRejectedCalls", circuitBreaker.notPermittedCalls());
+      }
+      return description;
+    }
+
+    private Counter rejections(Tags tags) {
+      return Counter.builder("http.client.not.permitted")
+          .description("Number of requests rejected without being sent")
+          .tags(tags)
+          .register(meters);
+    }
+
+    void release(boolean completed, long nanos, boolean failed) {
+      if (bulkhead != null) {
+        bulkhead.release();
+      }
+      if (circuitBreaker == null) {
+        return;
+      }
+      if (completed) {
+        circuitBreaker.onResult(nanos, failed);
+      } else {
+        circuitBreaker.release();
+      }
+    }
+
+    private boolean tryAcquireBulkhead() {
+      long wait = config.getBulkheadMaxWait().toNanos();
+      if (wait <= 0) {
+        return bulkhead.tryAcquire();
+      }
+      try {
+        return bulkhead.tryAcquire(wait, TimeUnit.NANOSECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+  }
+}
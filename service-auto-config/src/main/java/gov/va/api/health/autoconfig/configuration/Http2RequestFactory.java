@@ -0,0 +1,123 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.io.IOException;
+import java.net.URI;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.OkHttp3ClientHttpRequestFactory;
+
+/**
+ * A request factory backed by OkHttp, which negotiates HTTP/2 with servers that support it and
+ * multiplexes concurrent requests to a host over a single connection. The Apache HTTP client used
+ * by default speaks HTTP/1.1 and sends one request per connection at a time, so a high fan-out to
+ * one host needs as many TLS connections as requests in flight.
+ *
+ * <p>SSL is configured from the same {@link SslMaterialCache} as the Apache client, so servers are
+ * trusted exactly as the Apache client trusts them: when a trust store is used, the SSL context
+ * trusts any server certificate, as with the TrustAllStrategy of the Apache client. HTTP/2 is
+ * negotiated with ALPN, which requires Java 9 or later, or Java 8 update 252 or later. Otherwise,
+ * and for plain HTTP, requests are sent with HTTP/1.1.
+ *
+ * <p>OkHttp is an optional dependency, which must be on the classpath when
+ * http-client.http2-enabled=true. Connection counts are published as the okhttp.pool.connections
+ * gauge, tagged with the name of the client and the state of the connections.
+ */
+public class Http2RequestFactory implements ClientHttpRequestFactory, MeterBinder, DisposableBean {
+  private final String name;
+
+  private final OkHttpClient client;
+
+  private final OkHttp3ClientHttpRequestFactory delegate;
+
+  /** Create a factory for the named client. */
+  public Http2RequestFactory(
+      String name,
+      SslClientProperties config,
+      HttpClientProperties httpClientConfig,
+      SslMaterialCache sslMaterialCache) {
+    this.name = name;
+    OkHttpClient.Builder builder =
+        new OkHttpClient.Builder()
+            .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+            .connectionPool(
+                new ConnectionPool(
+                    httpClientConfig.getMaxConnectionsPerRoute(),
+                    httpClientConfig.getKeepAlive().toMillis(),
+                    TimeUnit.MILLISECONDS))
+            .connectTimeout(httpClientConfig.getConnectTimeout().toMillis(), TimeUnit.MILLISECONDS)
+            .readTimeout(httpClientConfig.getResponseTimeout().toMillis(), TimeUnit.MILLISECONDS);
+    if (config.isEnableClient()) {
+      ReloadingSslMaterial material = sslMaterialCache.reloading(config);
+      builder.sslSocketFactory(material.socketFactory(), trustManager(config, material));
+    }
+    if (!config.isVerify()) {
+      builder.hostnameVerifier((hostname, session) -> true);
+    }
+    client = builder.build();
+    delegate = new OkHttp3ClientHttpRequestFactory(client);
+  }
+
+  /**
+   * The trust manager that OkHttp requires alongside the socket factory. OkHttp only uses it to
+   * clean certificate chains for certificate pinning, which is not configured. It does not decide
+   * which servers are trusted, the SSL context of the socket factory does.
+   */
+  private static X509TrustManager trustManager(
+      SslClientProperties config, ReloadingSslMaterial material) {
+    try {
+      TrustManagerFactory factory;
+      if (config.isUseTrustStore()) {
+        factory = material.trustManagerFactory();
+      } else {
+        factory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        factory.init((KeyStore) null);
+      }
+      for (TrustManager trustManager : factory.getTrustManagers()) {
+        if (trustManager instanceof X509TrustManager) {
+          return (X509TrustManager) trustManager;
+        }
+      }
+      throw new SecureRestTemplateConfig.FailedToConfigureSsl(
+          "No X509 trust manager is available", null);
+    } catch (GeneralSecurityException e) {
+      throw new SecureRestTemplateConfig.FailedToConfigureSsl(e);
+    }
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("okhttp.pool.connections", client, c -> c.connectionPool().connectionCount())
+        .description("Number of open connections")
+        .tags("httpclient", name, "state", "total")
+        .register(registry);
+    Gauge.builder("okhttp.pool.connections", client, c -> c.connectionPool().idleConnectionCount())
+        .description("Number of idle connections")
+        .tags("httpclient", name, "state", "idle")
+        .register(registry);
+  }
+
+  @Override
+  public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+    return delegate.createRequest(uri, httpMethod);
+  }
+
+  @Override
+  public void destroy() throws IOException {
+    delegate.destroy();
+  }
+}
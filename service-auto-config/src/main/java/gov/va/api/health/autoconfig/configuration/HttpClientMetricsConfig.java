@@ -0,0 +1,59 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.metrics.web.client.HttpClientMetricsAutoConfiguration;
+import org.springframework.boot.actuate.metrics.web.client.RestTemplateExchangeTagsProvider;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configures the request timers that Spring Boot attaches to every RestTemplate created from the
+ * auto-configured RestTemplateBuilder, including the secure rest templates. Timers are named
+ * http.client.requests and tagged with method, uri (the URI template), status, clientName (the
+ * host), and outcome. Request timers and connection lease timers publish the percentiles and
+ * histograms configured in {@link HttpClientProperties}, unless distribution statistics are
+ * configured for them with management.metrics.distribution properties.
+ */
+@Configuration
+@AutoConfigureBefore(HttpClientMetricsAutoConfiguration.class)
+@AllArgsConstructor(onConstructor = @__({@Autowired}))
+public class HttpClientMetricsConfig {
+  private final HttpClientProperties httpClientConfig;
+
+  /** Applies the configured percentiles and histograms to HTTP client timers. */
+  @Bean
+  public MeterFilter httpClientDistributionMeterFilter() {
+    DistributionStatisticConfig defaults =
+        DistributionStatisticConfig.builder()
+            .percentiles(
+                httpClientConfig.getMetricsPercentiles().stream()
+                    .mapToDouble(Double::doubleValue)
+                    .toArray())
+            .percentilesHistogram(httpClientConfig.isMetricsPercentilesHistogram())
+            .build();
+    return new MeterFilter() {
+      @Override
+      public DistributionStatisticConfig configure(
+          Meter.Id id, DistributionStatisticConfig config) {
+        if (id.getName().startsWith("http.client.requests")
+            || id.getName().startsWith("httpcomponents.httpclient.pool.lease")) {
+          return config.merge(defaults);
+        }
+        return config;
+      }
+    };
+  }
+
+  /** Tags request timers with an outcome in addition to the Spring Boot defaults. */
+  @Bean
+  @ConditionalOnMissingBean
+  public RestTemplateExchangeTagsProvider restTemplateExchangeTagsProvider() {
+    return new OutcomeRestTemplateExchangeTagsProvider();
+  }
+}
@@ -0,0 +1,227 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Application properties for the pooled HTTP clients used by {@link SecureRestTemplateConfig} and
+ * {@link SecureWebClientConfig}. Durations may be specified using Spring Boot duration syntax, e.g.
+ * 500ms, 30s, 5m.
+ *
+ * <pre>
+ * http-client.max-connections=200
+ * http-client.max-connections-per-route=50
+ * http-client.route-max-connections[https://fhir.example.com]=100
+ * http-client.connection-request-timeout=30s
+ * http-client.validate-after-inactivity=2s
+ * http-client.evict-idle-after=30s
+ * http-client.keep-alive=30s
+ * http-client.time-to-live=5m
+ * http-client.connect-timeout=10s
+ * http-client.response-timeout=60s
+ * http-client.streaming=true
+ * http-client.http2-enabled=true
+ * http-client.failure-log-body-bytes=4096
+ * http-client.failure-log-sample-rate=1.0
+ * http-client.failure-logs-per-second=10
+ * http-client.failure-log-queue-size=100
+ * http-client.metrics-percentiles=0.5,0.95,0.99
+ * http-client.metrics-percentiles-histogram=true
+ * http-client.bulkhead-max-concurrent-calls=25
+ * http-client.route-bulkhead-max-concurrent-calls[https://fhir.example.com]=50
+ * http-client.bulkhead-max-wait=0ms
+ * http-client.circuit-breaker-enabled=true
+ * http-client.circuit-breaker-failure-rate-threshold=50
+ * http-client.circuit-breaker-slow-call-rate-threshold=100
+ * http-client.circuit-breaker-slow-call-duration=60s
+ * http-client.circuit-breaker-window-size=100
+ * http-client.circuit-breaker-minimum-calls=20
+ * http-client.circuit-breaker-open-duration=30s
+ * http-client.circuit-breaker-half-open-calls=5
+ * http-client.hedging-enabled=true
+ * http-client.hedge-delay-percentile=0.95
+ * http-client.hedge-min-delay=50ms
+ * http-client.max-retries=2
+ * http-client.retry-initial-backoff=100ms
+ * http-client.retry-max-backoff=2s
+ * http-client.retry-budget-ratio=0.1
+ * http-client.retry-budget-min-per-second=1
+ * http-client.single-flight-enabled=true
+ * http-client.single-flight-key-headers=Authorization,Cookie,Accept,Accept-Encoding,Accept-Language
+ * http-client.cache-enabled=true
+ * http-client.cache-key-headers=Authorization,Cookie,Accept,Accept-Encoding,Accept-Language
+ * http-client.cache-max-entry-bytes=1048576
+ * http-client.cache-max-memory-bytes=10485760
+ * http-client.cache-directory=/var/cache/http-client
+ * http-client.cache-max-disk-bytes=104857600
+ * </pre>
+ */
+@SuppressWarnings("DefaultAnnotationParam")
+@Configuration
+@EnableConfigurationProperties
+@ConfigurationProperties("http-client")
+@Data
+@Accessors(fluent = false)
+@NoArgsConstructor
+@Builder
+@AllArgsConstructor
+public class HttpClientProperties {
+
+  /** The maximum number of connections across all routes. */
+  @Builder.Default private int maxConnections = 200;
+
+  /** The maximum number of connections to any single route that is not explicitly configured. */
+  @Builder.Default private int maxConnectionsPerRoute = 50;
+
+  /**
+   * Per-route overrides keyed by scheme, host, and optional port, e.g. https://example.com:8443.
+   */
+  @Builder.Default private Map<String, Integer> routeMaxConnections = new HashMap<>();
+
+  /** How long to wait for a connection to be leased from the pool. */
+  @Builder.Default private Duration connectionRequestTimeout = Duration.ofSeconds(30);
+
+  /** Pooled connections idle longer than this are checked before being reused. */
+  @Builder.Default private Duration validateAfterInactivity = Duration.ofSeconds(2);
+
+  /** Pooled connections idle longer than this are closed in the background. */
+  @Builder.Default private Duration evictIdleAfter = Duration.ofSeconds(30);
+
+  /** Keep-alive used when the server does not advertise one, and the cap when it does. */
+  @Builder.Default private Duration keepAlive = Duration.ofSeconds(30);
+
+  /** Connections are never reused after this age. Zero or negative disables the limit. */
+  @Builder.Default private Duration timeToLive = Duration.ofMinutes(5);
+
+  /** How long the web client waits to establish a connection. */
+  @Builder.Default private Duration connectTimeout = Duration.ofSeconds(10);
+
+  /** How long the web client waits for response data before failing the request. */
+  @Builder.Default private Duration responseTimeout = Duration.ofSeconds(60);
+
+  /** Enables the streaming rest template bean. */
+  private boolean streaming;
+
+  /** Send rest template requests with an OkHttp client that can negotiate HTTP/2. */
+  private boolean http2Enabled;
+
+  /** The number of bytes of a failed request or response body that is logged. */
+  @Builder.Default private int failureLogBodyBytes = 4096;
+
+  /** The fraction of failed requests, from 0.0 to 1.0, that are considered for logging. */
+  @Builder.Default private double failureLogSampleRate = 1.0;
+
+  /** The maximum number of failed requests logged per second, bursting up to this many. */
+  @Builder.Default private int failureLogsPerSecond = 10;
+
+  /** The number of failures that may wait to be logged before additional failures are dropped. */
+  @Builder.Default private int failureLogQueueSize = 100;
+
+  /** Percentiles published for request timers and connection lease timers. */
+  @Builder.Default private List<Double> metricsPercentiles = Arrays.asList(0.5, 0.95, 0.99);
+
+  /**
+   * Publish histogram buckets for request and lease timers so percentiles can be aggregated. This
+   * publishes a series per bucket for each combination of tags, so it is disabled by default.
+   */
+  private boolean metricsPercentilesHistogram;
+
+  /**
+   * The maximum number of concurrent requests to any single host that is not explicitly configured.
+   * Zero disables the bulkheads.
+   */
+  private int bulkheadMaxConcurrentCalls;
+
+  /** Per-host bulkhead overrides keyed by scheme, host, and optional port. */
+  @Builder.Default private Map<String, Integer> routeBulkheadMaxConcurrentCalls = new HashMap<>();
+
+  /** How long a request waits for room in a full bulkhead before it is rejected. */
+  @Builder.Default private Duration bulkheadMaxWait = Duration.ZERO;
+
+  /** Enables a circuit breaker for each host. */
+  private boolean circuitBreakerEnabled;
+
+  /** The percentage of failed requests at which a circuit opens. */
+  @Builder.Default private double circuitBreakerFailureRateThreshold = 50;
+
+  /** The percentage of slow requests at which a circuit opens. */
+  @Builder.Default private double circuitBreakerSlowCallRateThreshold = 100;
+
+  /** Requests that take at least this long are considered slow. */
+  @Builder.Default private Duration circuitBreakerSlowCallDuration = Duration.ofSeconds(60);
+
+  /** The number of most recent requests used to calculate failure and slow request rates. */
+  @Builder.Default private int circuitBreakerWindowSize = 100;
+
+  /** The number of requests needed before rates are calculated. */
+  @Builder.Default private int circuitBreakerMinimumCalls = 20;
+
+  /** How long an open circuit rejects requests before allowing probe requests. */
+  @Builder.Default private Duration circuitBreakerOpenDuration = Duration.ofSeconds(30);
+
+  /** The number of probe requests that decide whether a half open circuit closes or reopens. */
+  @Builder.Default private int circuitBreakerHalfOpenCalls = 5;
+
+  /** Send a second attempt of slow GET and HEAD requests, and use whichever responds first. */
+  private boolean hedgingEnabled;
+
+  /** The percentile of recent response times of a host after which a request is hedged. */
+  @Builder.Default private double hedgeDelayPercentile = 0.95;
+
+  /** The shortest hedge delay, which is also used until enough responses have been timed. */
+  @Builder.Default private Duration hedgeMinDelay = Duration.ofMillis(50);
+
+  /** The number of times a failed GET or HEAD request is retried. Zero disables retries. */
+  private int maxRetries;
+
+  /** The longest backoff before the first retry. Each retry doubles it, with random jitter. */
+  @Builder.Default private Duration retryInitialBackoff = Duration.ofMillis(100);
+
+  /** The longest backoff before any retry. */
+  @Builder.Default private Duration retryMaxBackoff = Duration.ofSeconds(2);
+
+  /** The number of retries and hedges allowed for each request, e.g. 0.1 allows one in ten. */
+  @Builder.Default private double retryBudgetRatio = 0.1;
+
+  /** The number of retries and hedges allowed per second regardless of the request rate. */
+  @Builder.Default private double retryBudgetMinPerSecond = 1;
+
+  /** Coalesce identical GET requests that are in flight at the same time into one request. */
+  private boolean singleFlightEnabled;
+
+  /** The request headers that must also match for GET requests to be coalesced. */
+  @Builder.Default
+  private List<String> singleFlightKeyHeaders =
+      Arrays.asList("Authorization", "Cookie", "Accept", "Accept-Encoding", "Accept-Language");
+
+  /** Cache GET responses per their Cache-Control, Expires, ETag, and Last-Modified headers. */
+  private boolean cacheEnabled;
+
+  /** The request headers that must also match for a cached response to be used. */
+  @Builder.Default
+  private List<String> cacheKeyHeaders =
+      Arrays.asList("Authorization", "Cookie", "Accept", "Accept-Encoding", "Accept-Language");
+
+  /** Responses with larger bodies are not cached. */
+  @Builder.Default private long cacheMaxEntryBytes = 1024 * 1024;
+
+  /** The total size of cached responses held in memory. */
+  @Builder.Default private long cacheMaxMemoryBytes = 10 * 1024 * 1024;
+
+  /** A directory to also cache responses in. Responses are only cached in memory if not set. */
+  private String cacheDirectory;
+
+  /** The total size of cached responses held in the cache directory. */
+  @Builder.Default private long cacheMaxDiskBytes = 100 * 1024 * 1024;
+}
@@ -0,0 +1,22 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/**
+ * Reports the bulkhead and circuit breaker state of each host requested by the secure rest
+ * templates, keyed by host. Like other actuator endpoints, it must be exposed to be reachable, e.g.
+ * management.endpoints.web.exposure.include=health,httpclientresilience.
+ */
+@Endpoint(id = "httpclientresilience")
+@AllArgsConstructor(staticName = "of")
+public class HttpClientResilienceEndpoint {
+  private final HostResilienceInterceptor interceptor;
+
+  @ReadOperation
+  public Map<String, Map<String, Object>> hosts() {
+    return interceptor.describe();
+  }
+}
@@ -1,15 +1,16 @@
 package gov.va.api.health.autoconfig.configuration;
 
-import static org.apache.commons.lang3.StringUtils.trim;
-
 import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
@@ -19,10 +20,26 @@ import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.databind.ser.std.StdScalarSerializer;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
 import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.ClassUtils;
 
 /**
  * Look for a deserialize annotation using the builder for immutable data types. This configuration
@@ -64,15 +81,66 @@ import org.springframework.context.annotation.Configuration;
  *    String bar;
  * }
  * </pre>
+ *
+ * <p>Creating and configuring a mapper is expensive, and a new mapper must rediscover the
+ * serializers and deserializers for every type it handles. Code that repeatedly reads or writes the
+ * same types, e.g. test clients, should use the shared readers and writers provided by {@link
+ * #readerFor(Class)}, {@link #readerForListOf(Class)}, and {@link #writerFor(Class)}.
+ *
+ * <p>Lombok builders are found once per class. Applications can resolve the builders for their
+ * model packages at startup using the jackson.prescan-packages property, e.g.
+ * jackson.prescan-packages=gov.va.api.health.example.api.
+ *
+ * <p>Setting jackson.afterburner=true registers the Afterburner module with the mapper bean, see
+ * {@link #createMapper(boolean)}. Afterburner can only accelerate access to public and package
+ * private fields and methods, and does not change how builders are invoked, so the benefit depends
+ * on the shape of the model classes. Measure before enabling it. On Java 9 and later, Afterburner
+ * needs --add-opens=java.base/java.lang=ALL-UNNAMED to deserialize using Lombok builders, since
+ * their constructors are package private.
  */
 @Configuration
+@Slf4j
 public class JacksonConfig {
+  private static final int MAX_CACHED_TYPES = 512;
+
+  private static final ObjectMapper SHARED_MAPPER = createMapper();
+
+  private static final BoundedCache<JavaType, ObjectReader> READERS =
+      new BoundedCache<>(MAX_CACHED_TYPES);
+
+  private static final BoundedCache<JavaType, ObjectWriter> WRITERS =
+      new BoundedCache<>(MAX_CACHED_TYPES);
+
+  private final boolean afterburner;
+
+  /** Create a configuration for mappers without bytecode acceleration. */
+  public JacksonConfig() {
+    this(false);
+  }
+
+  /**
+   * Create a configuration for mappers that optionally use Afterburner bytecode acceleration, as
+   * configured by the jackson.afterburner property.
+   */
+  @Autowired
+  public JacksonConfig(@Value("${jackson.afterburner:false}") boolean afterburner) {
+    this.afterburner = afterburner;
+  }
 
   /** Return a configured Jackson ObjectMapper. This method is useful as a supplier function. */
   public static ObjectMapper createMapper() {
     return new JacksonConfig().objectMapper();
   }
 
+  /**
+   * Return a configured Jackson ObjectMapper that, if requested, uses the Afterburner module to
+   * replace reflective property access with generated bytecode. Output is identical with or without
+   * Afterburner. This method is useful as a supplier function.
+   */
+  public static ObjectMapper createMapper(boolean afterburner) {
+    return new JacksonConfig(afterburner).objectMapper();
+  }
+
   /**
    * Return a configured Jackson ObjectMapper that uses the given factory. Use this method to create
    * a Yaml mapper. This method is useful as a supplier function.
@@ -81,8 +149,67 @@ public class JacksonConfig {
     return new JacksonConfig().configureMapper(new ObjectMapper(jsonFactory));
   }
 
+  /**
+   * Resolve the Lombok builders of every class in the given packages and their subpackages. Builder
+   * lookups are cached for the life of the class, so scanning at startup moves that reflective work
+   * out of the first request to read each type. Returns the number of classes that were scanned.
+   */
+  public static int prescanBuilders(String... basePackages) {
+    ClassPathScanningCandidateComponentProvider scanner =
+        new ClassPathScanningCandidateComponentProvider(false) {
+          @Override
+          protected boolean isCandidateComponent(AnnotatedBeanDefinition beanDefinition) {
+            return true;
+          }
+        };
+    scanner.addIncludeFilter((reader, factory) -> true);
+    ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+    int scanned = 0;
+    for (String basePackage : basePackages) {
+      for (BeanDefinition candidate : scanner.findCandidateComponents(basePackage)) {
+        try {
+          LombokAnnotationIntrospector.lombokBuilder(
+              ClassUtils.forName(candidate.getBeanClassName(), classLoader));
+          scanned++;
+        } catch (ClassNotFoundException | LinkageError e) {
+          log.debug("Cannot prescan {}: {}", candidate.getBeanClassName(), e.getMessage());
+        }
+      }
+    }
+    return scanned;
+  }
+
+  /**
+   * Return a shared reader for the given type. Readers are immutable and thread safe, and have
+   * already located the deserializer for the type.
+   */
+  public static ObjectReader readerFor(Class<?> type) {
+    return readerFor(SHARED_MAPPER.constructType(type));
+  }
+
+  private static ObjectReader readerFor(JavaType type) {
+    return READERS.computeIfAbsent(type, SHARED_MAPPER::readerFor);
+  }
+
+  /** Return a shared reader for a JSON list of the given element type. */
+  public static ObjectReader readerForListOf(Class<?> elementType) {
+    return readerFor(
+        SHARED_MAPPER.getTypeFactory().constructCollectionType(List.class, elementType));
+  }
+
+  /**
+   * Return a shared writer for the given type. Writers are immutable and thread safe, and have
+   * already located the serializer for the type.
+   */
+  public static ObjectWriter writerFor(Class<?> type) {
+    return WRITERS.computeIfAbsent(SHARED_MAPPER.constructType(type), SHARED_MAPPER::writerFor);
+  }
+
   /** Configure the given mapper as described in the class-level documentation. */
   private ObjectMapper configureMapper(ObjectMapper mapper) {
+    if (afterburner) {
+      mapper.registerModule(new AfterburnerModule());
+    }
     return mapper
         .registerModule(new Jdk8Module())
         .registerModule(new JavaTimeModule())
@@ -95,6 +222,18 @@ public class JacksonConfig {
         .setVisibility(PropertyAccessor.ALL, Visibility.ANY);
   }
 
+  /**
+   * Resolve the Lombok builders of classes in the packages listed by the jackson.prescan-packages
+   * property when the application starts.
+   */
+  @Bean
+  @ConditionalOnProperty("jackson.prescan-packages")
+  public InitializingBean jacksonBuilderPrescan(
+      @Value("${jackson.prescan-packages}") String[] basePackages) {
+    return () ->
+        log.info("Prescanned {} classes for Lombok builders", prescanBuilders(basePackages));
+  }
+
   /**
    * Return a ready to use mapper that will work with classes adhering to the conventions described
    * in the class-level documentation.
@@ -105,6 +244,36 @@ public class JacksonConfig {
     return configureMapper(new ObjectMapper());
   }
 
+  /**
+   * A concurrent cache that holds a limited number of entries. Lookups do not lock. When the cache
+   * is full, it is emptied and refilled on demand, which is cheaper than tracking usage and is rare
+   * since applications read and write a limited set of types.
+   */
+  static class BoundedCache<K, V> {
+    private final ConcurrentMap<K, V> entries = new ConcurrentHashMap<>();
+
+    private final int maxSize;
+
+    BoundedCache(int maxSize) {
+      this.maxSize = maxSize;
+    }
+
+    V computeIfAbsent(K key, Function<K, V> factory) {
+      V value = entries.get(key);
+      if (value != null) {
+        return value;
+      }
+      if (entries.size() >= maxSize) {
+        entries.clear();
+      }
+      return entries.computeIfAbsent(key, factory);
+    }
+
+    int size() {
+      return entries.size();
+    }
+  }
+
   /**
    * The lombok class annotation inspector provides support for this project's style of builders.
    * This allows @Value classes with @Builders to be automatically supported for deserialization. It
@@ -115,6 +284,45 @@ public class JacksonConfig {
    */
   private static class LombokAnnotationIntrospector extends JacksonAnnotationIntrospector {
 
+    /**
+     * Lombok builders, or the absence of one, for each class. Results are computed once per class
+     * and are released with the class, so class loaders are not retained.
+     */
+    private static final ClassValue<Optional<Class<?>>> LOMBOK_BUILDERS =
+        new ClassValue<Optional<Class<?>>>() {
+          @Override
+          protected Optional<Class<?>> computeValue(Class<?> type) {
+            return findLombokBuilder(type);
+          }
+        };
+
+    private static Optional<Class<?>> findLombokBuilder(Class<?> type) {
+      if (hasDefaultConstructor(type)) {
+        return Optional.empty();
+      }
+      String lombokBuilder = type.getSimpleName() + "Builder";
+      for (Class<?> declared : type.getDeclaredClasses()) {
+        if (declared.getSimpleName().equals(lombokBuilder)) {
+          return Optional.of(declared);
+        }
+      }
+      return Optional.empty();
+    }
+
+    private static boolean hasDefaultConstructor(Class<?> type) {
+      for (Constructor<?> constructor : type.getDeclaredConstructors()) {
+        if (constructor.getParameterCount() == 0) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /** Return the Lombok builder for the given class, if it has one and no default constructor. */
+    static Optional<Class<?>> lombokBuilder(Class<?> type) {
+      return LOMBOK_BUILDERS.get(type);
+    }
+
     @Override
     public Class<?> findPOJOBuilder(AnnotatedClass ac) {
       /*
@@ -125,17 +333,7 @@ public class JacksonConfig {
       if (pojoBuilder != null) {
         return pojoBuilder;
       }
-      if (hasDefaultConstructor(ac.getAnnotated())) {
-        return null;
-      }
-      String className = ac.getAnnotated().getSimpleName();
-      String lombokBuilder = ac.getAnnotated().getName() + "$" + className + "Builder";
-      try {
-        return Class.forName(lombokBuilder);
-      } catch (ClassNotFoundException e) {
-        /* Default lombok builder does not exist. */
-      }
-      return null;
+      return lombokBuilder(ac.getAnnotated()).orElse(null);
     }
 
     @Override
@@ -145,28 +343,60 @@ public class JacksonConfig {
       }
       return new JsonPOJOBuilder.Value("build", "");
     }
-
-    private boolean hasDefaultConstructor(Class<?> ac) {
-      try {
-        return ac.getDeclaredConstructor() != null;
-      } catch (NoSuchMethodException e) {
-        return false;
-      }
-    }
   }
 
   /** A module that adds a whitespace trimming String serializer. */
   private static class StringTrimModule extends SimpleModule {
     StringTrimModule() {
-      addSerializer(
-          String.class,
-          new StdScalarSerializer<String>(String.class, false) {
-            @Override
-            public void serialize(String value, JsonGenerator gen, SerializerProvider provider)
-                throws IOException {
-              gen.writeString(trim(value));
-            }
-          });
+      addSerializer(String.class, new TrimmingStringSerializer());
+    }
+  }
+
+  /**
+   * Writes strings without leading or trailing whitespace, as defined by String.trim(). Most
+   * strings do not need trimming and are written as is. Otherwise, the trimmed range is copied to a
+   * reusable per-thread buffer and written from there, so no intermediate String is created.
+   */
+  static class TrimmingStringSerializer extends StdScalarSerializer<String> {
+    /** Larger trimmed strings are rare, and are copied rather than grow the per-thread buffer. */
+    private static final int MAX_BUFFER_LENGTH = 8192;
+
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[256]);
+
+    TrimmingStringSerializer() {
+      super(String.class, false);
+    }
+
+    private static char[] buffer(int length) {
+      char[] buffer = BUFFER.get();
+      if (buffer.length < length) {
+        buffer = new char[Math.max(length, buffer.length * 2)];
+        BUFFER.set(buffer);
+      }
+      return buffer;
+    }
+
+    @Override
+    public void serialize(String value, JsonGenerator gen, SerializerProvider provider)
+        throws IOException {
+      int start = 0;
+      int end = value.length();
+      while (start < end && value.charAt(start) <= ' ') {
+        start++;
+      }
+      while (end > start && value.charAt(end - 1) <= ' ') {
+        end--;
+      }
+      int length = end - start;
+      if (length == value.length()) {
+        gen.writeString(value);
+      } else if (length > MAX_BUFFER_LENGTH) {
+        gen.writeString(value.substring(start, end));
+      } else {
+        char[] buffer = buffer(length);
+        value.getChars(start, end, buffer, 0);
+        gen.writeString(buffer, 0, length);
+      }
     }
   }
 }
@@ -0,0 +1,69 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.config.Registry;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+/**
+ * A pooling connection manager that records how long callers wait to lease a connection as the
+ * httpcomponents.httpclient.pool.lease timer, tagged with the name of the client. Lease time grows
+ * when the pool is exhausted, which is otherwise indistinguishable from a slow downstream service.
+ * The timer is published to every registry this is bound to.
+ */
+public class LeaseTimingConnectionManager extends PoolingHttpClientConnectionManager
+    implements MeterBinder {
+  private final CompositeMeterRegistry meters = new CompositeMeterRegistry();
+
+  private final Timer leaseTimer;
+
+  /** Create a manager for the named client with connections that live no longer than the TTL. */
+  public LeaseTimingConnectionManager(
+      String name,
+      Registry<ConnectionSocketFactory> socketFactoryRegistry,
+      long timeToLive,
+      TimeUnit timeUnit) {
+    super(socketFactoryRegistry, null, null, null, timeToLive, timeUnit);
+    leaseTimer =
+        Timer.builder("httpcomponents.httpclient.pool.lease")
+            .description("Time spent waiting to lease a connection from the pool")
+            .tag("httpclient", name)
+            .register(meters);
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    meters.add(registry);
+  }
+
+  @Override
+  public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+    ConnectionRequest request = super.requestConnection(route, state);
+    return new ConnectionRequest() {
+      @Override
+      public boolean cancel() {
+        return request.cancel();
+      }
+
+      @Override
+      public HttpClientConnection get(long timeout, TimeUnit unit)
+          throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+        long start = System.nanoTime();
+        try {
+          return request.get(timeout, unit);
+        } finally {
+          leaseTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+      }
+    };
+  }
+}
@@ -0,0 +1,36 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import java.io.IOException;
+import org.springframework.boot.actuate.metrics.web.client.DefaultRestTemplateExchangeTagsProvider;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * Adds an outcome tag to the method, URI template, status, and client name tags that Spring Boot
+ * applies to RestTemplate request timers. The outcome groups statuses by series, e.g. SUCCESS or
+ * SERVER_ERROR, and is UNKNOWN when no response was received.
+ */
+class OutcomeRestTemplateExchangeTagsProvider extends DefaultRestTemplateExchangeTagsProvider {
+  private static final Tag UNKNOWN = Tag.of("outcome", "UNKNOWN");
+
+  static Tag outcome(ClientHttpResponse response) {
+    if (response == null) {
+      return UNKNOWN;
+    }
+    try {
+      HttpStatus.Series series = HttpStatus.Series.valueOf(response.getRawStatusCode());
+      return Tag.of("outcome", series == HttpStatus.Series.SUCCESSFUL ? "SUCCESS" : series.name());
+    } catch (IOException | IllegalArgumentException e) {
+      return UNKNOWN;
+    }
+  }
+
+  @Override
+  public Iterable<Tag> getTags(
+      String urlTemplate, HttpRequest request, ClientHttpResponse response) {
+    return Tags.of(super.getTags(urlTemplate, request, response)).and(outcome(response));
+  }
+}
@@ -0,0 +1,84 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * A response decorator that reads up to a fixed number of bytes from the body so they can be
+ * inspected, e.g. logged, without consuming the body. The body returned by {@link #getBody()} is
+ * the peeked prefix followed by the unread remainder of the original body.
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+class PeekingClientHttpResponse implements ClientHttpResponse {
+  private final ClientHttpResponse delegate;
+
+  private final byte[] prefix;
+
+  private final InputStream remainder;
+
+  private InputStream body;
+
+  /** Peek at no more than the given number of bytes of the response body. */
+  static PeekingClientHttpResponse of(ClientHttpResponse response, int limit) throws IOException {
+    InputStream remainder = response.getBody();
+    ByteArrayOutputStream prefix = new ByteArrayOutputStream(Math.max(0, Math.min(limit, 8192)));
+    byte[] buffer = new byte[Math.max(1, Math.min(limit, 8192))];
+    int remaining = limit;
+    while (remaining > 0) {
+      int read = remainder.read(buffer, 0, Math.min(buffer.length, remaining));
+      if (read < 0) {
+        break;
+      }
+      prefix.write(buffer, 0, read);
+      remaining -= read;
+    }
+    return new PeekingClientHttpResponse(response, prefix.toByteArray(), remainder);
+  }
+
+  @Override
+  public void close() {
+    delegate.close();
+  }
+
+  @Override
+  public InputStream getBody() {
+    if (body == null) {
+      body = new SequenceInputStream(new ByteArrayInputStream(prefix), remainder);
+    }
+    return body;
+  }
+
+  @Override
+  public HttpHeaders getHeaders() {
+    return delegate.getHeaders();
+  }
+
+  @Override
+  public int getRawStatusCode() throws IOException {
+    return delegate.getRawStatusCode();
+  }
+
+  @Override
+  public HttpStatus getStatusCode() throws IOException {
+    return delegate.getStatusCode();
+  }
+
+  @Override
+  public String getStatusText() throws IOException {
+    return delegate.getStatusText();
+  }
+
+  /** The peeked bytes of the body, decoded as UTF-8. */
+  String peek() {
+    return new String(prefix, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,309 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.security.KeyStore;
+import java.security.Principal;
+import java.security.PrivateKey;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.KeyManagerFactorySpi;
+import javax.net.ssl.ManagerFactoryParameters;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.TrustManagerFactorySpi;
+import javax.net.ssl.X509ExtendedKeyManager;
+import javax.net.ssl.X509ExtendedTrustManager;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * SSL material for a {@link SslClientProperties} configuration that is swapped when the key or
+ * trust store changes on disk. The socket factory, key manager, and trust manager provided here
+ * delegate to the most recently loaded material, so new connections use rotated certificates while
+ * connections that are already established, and requests in flight on them, are unaffected.
+ *
+ * <p>Stores are checked for changes every {@link SslClientProperties#getReloadInterval()}. If the
+ * interval is not set, the material is loaded once and never reloaded. If a changed store cannot be
+ * loaded, e.g. it is only partially written, the previous material remains in use and loading will
+ * be retried on the next check.
+ */
+@Slf4j
+class ReloadingSslMaterial {
+  private final SslClientProperties config;
+
+  private final SslMaterialCache cache;
+
+  private final AtomicReference<SSLContext> sslContext = new AtomicReference<>();
+
+  private final AtomicReference<X509ExtendedKeyManager> keyManager = new AtomicReference<>();
+
+  private final AtomicReference<X509ExtendedTrustManager> trustManager = new AtomicReference<>();
+
+  private volatile ScheduledFuture<?> reloads;
+
+  private ReloadingSslMaterial(SslClientProperties config, SslMaterialCache cache) {
+    this.config = config;
+    this.cache = cache;
+    load();
+  }
+
+  /**
+   * Load the material for the given configuration and, if a reload interval is configured, check
+   * for changes periodically using the given scheduler.
+   */
+  static ReloadingSslMaterial of(
+      SslClientProperties config, SslMaterialCache cache, ScheduledExecutorService scheduler) {
+    ReloadingSslMaterial material = new ReloadingSslMaterial(config, cache);
+    if (config.getReloadInterval() != null && !config.getReloadInterval().isZero()) {
+      long interval = config.getReloadInterval().toMillis();
+      material.reloads =
+          scheduler.scheduleWithFixedDelay(
+              material::reload, interval, interval, TimeUnit.MILLISECONDS);
+    }
+    return material;
+  }
+
+  private static <T> T first(Class<T> type, Object[] managers) {
+    for (Object manager : managers) {
+      if (type.isInstance(manager)) {
+        return type.cast(manager);
+      }
+    }
+    throw new IllegalStateException("No " + type.getSimpleName() + " available");
+  }
+
+  /** Stop checking for changes. The most recently loaded material remains in use. */
+  void close() {
+    ScheduledFuture<?> task = reloads;
+    if (task != null) {
+      task.cancel(false);
+    }
+  }
+
+  /** A key manager factory that always provides the reloading key manager. */
+  KeyManagerFactory keyManagerFactory() {
+    return new KeyManagerFactory(
+        new KeyManagerFactorySpi() {
+          @Override
+          protected KeyManager[] engineGetKeyManagers() {
+            return new KeyManager[] {new ReloadingKeyManager()};
+          }
+
+          @Override
+          protected void engineInit(KeyStore keyStore, char[] password) {}
+
+          @Override
+          protected void engineInit(ManagerFactoryParameters parameters) {}
+        },
+        null,
+        "Reloading") {};
+  }
+
+  private void load() {
+    SSLContext nextSslContext = cache.sslContext(config);
+    if (nextSslContext == sslContext.get()) {
+      return;
+    }
+    X509ExtendedKeyManager nextKeyManager =
+        first(X509ExtendedKeyManager.class, cache.keyManagerFactory(config).getKeyManagers());
+    X509ExtendedTrustManager nextTrustManager =
+        config.isUseTrustStore()
+            ? first(
+                X509ExtendedTrustManager.class,
+                cache.trustManagerFactory(config).getTrustManagers())
+            : null;
+    keyManager.set(nextKeyManager);
+    trustManager.set(nextTrustManager);
+    sslContext.set(nextSslContext);
+  }
+
+  /** Check the stores for changes, swapping in new material if necessary. */
+  void reload() {
+    SSLContext previous = sslContext.get();
+    try {
+      load();
+      if (sslContext.get() != previous) {
+        log.info("Reloaded SSL material from {}", config.getKeyStore());
+      }
+    } catch (RuntimeException e) {
+      log.warn("Failed to reload SSL material, keeping previous: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * A socket factory that uses the most recently loaded SSL context, which trusts servers in the
+   * same way as {@link SslMaterialCache#sslContext(SslClientProperties)}.
+   */
+  SSLSocketFactory socketFactory() {
+    return new ReloadingSocketFactory();
+  }
+
+  /**
+   * A trust manager factory that always provides the reloading trust manager. This is only
+   * available if the configuration uses a trust store.
+   */
+  TrustManagerFactory trustManagerFactory() {
+    if (!config.isUseTrustStore()) {
+      throw new IllegalStateException("Trust store is not enabled");
+    }
+    return new TrustManagerFactory(
+        new TrustManagerFactorySpi() {
+          @Override
+          protected TrustManager[] engineGetTrustManagers() {
+            return new TrustManager[] {new ReloadingTrustManager()};
+          }
+
+          @Override
+          protected void engineInit(KeyStore keyStore) {}
+
+          @Override
+          protected void engineInit(ManagerFactoryParameters parameters) {}
+        },
+        null,
+        "Reloading") {};
+  }
+
+  private class ReloadingKeyManager extends X509ExtendedKeyManager {
+    @Override
+    public String chooseClientAlias(String[] keyType, Principal[] issuers, Socket socket) {
+      return keyManager.get().chooseClientAlias(keyType, issuers, socket);
+    }
+
+    @Override
+    public String chooseEngineClientAlias(String[] keyType, Principal[] issuers, SSLEngine engine) {
+      return keyManager.get().chooseEngineClientAlias(keyType, issuers, engine);
+    }
+
+    @Override
+    public String chooseEngineServerAlias(String keyType, Principal[] issuers, SSLEngine engine) {
+      return keyManager.get().chooseEngineServerAlias(keyType, issuers, engine);
+    }
+
+    @Override
+    public String chooseServerAlias(String keyType, Principal[] issuers, Socket socket) {
+      return keyManager.get().chooseServerAlias(keyType, issuers, socket);
+    }
+
+    @Override
+    public X509Certificate[] getCertificateChain(String alias) {
+      return keyManager.get().getCertificateChain(alias);
+    }
+
+    @Override
+    public String[] getClientAliases(String keyType, Principal[] issuers) {
+      return keyManager.get().getClientAliases(keyType, issuers);
+    }
+
+    @Override
+    public PrivateKey getPrivateKey(String alias) {
+      return keyManager.get().getPrivateKey(alias);
+    }
+
+    @Override
+    public String[] getServerAliases(String keyType, Principal[] issuers) {
+      return keyManager.get().getServerAliases(keyType, issuers);
+    }
+  }
+
+  private class ReloadingSocketFactory extends SSLSocketFactory {
+    @Override
+    public Socket createSocket() throws IOException {
+      return current().createSocket();
+    }
+
+    @Override
+    public Socket createSocket(Socket socket, String host, int port, boolean autoClose)
+        throws IOException {
+      return current().createSocket(socket, host, port, autoClose);
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+      return current().createSocket(host, port);
+    }
+
+    @Override
+    public Socket createSocket(String host, int port, InetAddress localHost, int localPort)
+        throws IOException {
+      return current().createSocket(host, port, localHost, localPort);
+    }
+
+    @Override
+    public Socket createSocket(InetAddress host, int port) throws IOException {
+      return current().createSocket(host, port);
+    }
+
+    @Override
+    public Socket createSocket(
+        InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+      return current().createSocket(address, port, localAddress, localPort);
+    }
+
+    private SSLSocketFactory current() {
+      return sslContext.get().getSocketFactory();
+    }
+
+    @Override
+    public String[] getDefaultCipherSuites() {
+      return current().getDefaultCipherSuites();
+    }
+
+    @Override
+    public String[] getSupportedCipherSuites() {
+      return current().getSupportedCipherSuites();
+    }
+  }
+
+  private class ReloadingTrustManager extends X509ExtendedTrustManager {
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType)
+        throws CertificateException {
+      trustManager.get().checkClientTrusted(chain, authType);
+    }
+
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket)
+        throws CertificateException {
+      trustManager.get().checkClientTrusted(chain, authType, socket);
+    }
+
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine)
+        throws CertificateException {
+      trustManager.get().checkClientTrusted(chain, authType, engine);
+    }
+
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType)
+        throws CertificateException {
+      trustManager.get().checkServerTrusted(chain, authType);
+    }
+
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket)
+        throws CertificateException {
+      trustManager.get().checkServerTrusted(chain, authType, socket);
+    }
+
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine)
+        throws CertificateException {
+      trustManager.get().checkServerTrusted(chain, authType, engine);
+    }
+
+    @Override
+    public X509Certificate[] getAcceptedIssuers() {
+      return trustManager.get().getAcceptedIssuers();
+    }
+  }
+}
@@ -0,0 +1,362 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import gov.va.api.health.autoconfig.configuration.ResponseCacheStore.Entry;
+import gov.va.api.health.autoconfig.configuration.ResponseCacheStore.Tier;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.support.HttpRequestWrapper;
+
+/**
+ * A client side cache of GET responses that follows the HTTP caching rules of RFC 7234 for a
+ * private cache. Responses are stored if they are cacheable by status, are not marked no-store, and
+ * have an explicit freshness lifetime or a validator. Fresh responses are returned without a
+ * request. Stale responses are revalidated with If-None-Match and If-Modified-Since, and a 304
+ * response refreshes the stored response instead of transferring the body again. Successful unsafe
+ * requests, e.g. POST, invalidate the cached responses of their URI.
+ *
+ * <p>Responses are cached per URI and per value of the key headers, e.g. Authorization, so that a
+ * response is never served to a caller with different credentials. Responses are stored in a {@link
+ * ResponseCacheStore}. Caching is disabled by default, see {@link HttpClientProperties}. Since
+ * bodies are held in memory, it is only used by the buffering rest template.
+ *
+ * <p>Lookups are published as the http.client.cache.requests counter, tagged with a result of hit,
+ * revalidated, or miss. The size, entries, and evictions of each tier are also published.
+ */
+public class ResponseCacheInterceptor implements ClientHttpRequestInterceptor, MeterBinder {
+  /** Statuses that are cacheable by default, per RFC 7231, except partial content. */
+  private static final int[] CACHEABLE_STATUSES = {
+    200, 203, 204, 300, 301, 404, 405, 410, 414, 501
+  };
+
+  private static final Set<HttpMethod> SAFE =
+      EnumSet.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS, HttpMethod.TRACE);
+
+  /** Headers of a 304 response that describe the transfer, not the stored representation. */
+  private static final List<String> UNMERGED_HEADERS =
+      Arrays.asList(
+          HttpHeaders.CONTENT_LENGTH, HttpHeaders.CONTENT_ENCODING, HttpHeaders.TRANSFER_ENCODING);
+
+  private final CompositeMeterRegistry meters = new CompositeMeterRegistry();
+
+  private final HttpClientProperties config;
+
+  private final ResponseCacheStore store;
+
+  private final LongSupplier currentTimeMillis;
+
+  private final Counter hits;
+
+  private final Counter revalidations;
+
+  private final Counter misses;
+
+  /** Create a cache for the named client. */
+  public ResponseCacheInterceptor(String name, HttpClientProperties config) {
+    this(name, config, ResponseCacheStore.of(config), System::currentTimeMillis);
+  }
+
+  ResponseCacheInterceptor(
+      String name,
+      HttpClientProperties config,
+      ResponseCacheStore store,
+      LongSupplier currentTimeMillis) {
+    this.config = config;
+    this.store = store;
+    this.currentTimeMillis = currentTimeMillis;
+    hits = requests(name, "hit");
+    revalidations = requests(name, "revalidated");
+    misses = requests(name, "miss");
+    for (Tier tier : Tier.values()) {
+      String tierName = tier.name().toLowerCase(Locale.ENGLISH);
+      Gauge.builder("http.client.cache.size", store, s -> s.size(tier))
+          .description("Total size of the cached responses")
+          .baseUnit("bytes")
+          .tags("httpclient", name, "tier", tierName)
+          .register(meters);
+      Gauge.builder("http.client.cache.entries", store, s -> s.entries(tier))
+          .description("Number of cached responses")
+          .tags("httpclient", name, "tier", tierName)
+          .register(meters);
+      FunctionCounter.builder("http.client.cache.evictions", store, s -> s.evictions(tier))
+          .description("Number of cached responses evicted to make room for others")
+          .tags("httpclient", name, "tier", tierName)
+          .register(meters);
+    }
+  }
+
+  /** Parse the directives of Cache-Control headers, with lower case names and unquoted values. */
+  static Map<String, String> directives(List<String> cacheControl) {
+    Map<String, String> directives = new HashMap<>();
+    if (cacheControl == null) {
+      return directives;
+    }
+    for (String header : cacheControl) {
+      for (String directive : header.split(",")) {
+        String[] parts = directive.trim().split("=", 2);
+        if (!parts[0].isEmpty()) {
+          directives.put(
+              parts[0].toLowerCase(Locale.ENGLISH),
+              parts.length > 1 ? parts[1].trim().replaceAll("^\"|\"$", "") : "");
+        }
+      }
+    }
+    return directives;
+  }
+
+  /** The Date header, or -1 if it is missing or invalid. */
+  private static long date(HttpHeaders headers) {
+    try {
+      return headers.getDate();
+    } catch (IllegalArgumentException e) {
+      return -1;
+    }
+  }
+
+  private static long seconds(Map<String, String> directives, String name, long otherwise) {
+    try {
+      return directives.containsKey(name) ? Long.parseLong(directives.get(name)) : otherwise;
+    } catch (NumberFormatException e) {
+      return otherwise;
+    }
+  }
+
+  /** The age of a response when it was received, in seconds. */
+  private long age(HttpHeaders headers, long responseTime) {
+    long apparentAge =
+        date(headers) > 0
+            ? TimeUnit.MILLISECONDS.toSeconds(Math.max(0, responseTime - date(headers)))
+            : 0;
+    long ageHeader;
+    try {
+      ageHeader = Long.parseLong(Optional.ofNullable(headers.getFirst("Age")).orElse("0").trim());
+    } catch (NumberFormatException e) {
+      ageHeader = 0;
+    }
+    return Math.max(apparentAge, ageHeader);
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    meters.add(registry);
+  }
+
+  private boolean cacheable(ClientHttpResponse response) throws IOException {
+    int status = response.getRawStatusCode();
+    if (Arrays.stream(CACHEABLE_STATUSES).noneMatch(s -> s == status)) {
+      return false;
+    }
+    HttpHeaders headers = response.getHeaders();
+    Map<String, String> directives = directives(headers.get(HttpHeaders.CACHE_CONTROL));
+    if (directives.containsKey("no-store") || headers.getVary().contains("*")) {
+      return false;
+    }
+    if (headers.getContentLength() > config.getCacheMaxEntryBytes()) {
+      return false;
+    }
+    return directives.containsKey("max-age")
+        || headers.getExpires() > 0
+        || headers.getETag() != null
+        || headers.getLastModified() > 0;
+  }
+
+  /** The number of seconds since the response was received. */
+  private long currentAge(Entry entry, long now) {
+    return entry.initialAge()
+        + TimeUnit.MILLISECONDS.toSeconds(Math.max(0, now - entry.responseTime()));
+  }
+
+  /** True if caching is enabled. */
+  public boolean enabled() {
+    return config.isCacheEnabled();
+  }
+
+  private Entry entry(String key, HttpRequest request, ClientHttpResponse response, byte[] body)
+      throws IOException {
+    long now = currentTimeMillis.getAsLong();
+    Map<String, String> vary = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    for (String name : response.getHeaders().getVary()) {
+      vary.put(name, String.valueOf(request.getHeaders().get(name)));
+    }
+    return Entry.builder()
+        .key(key)
+        .status(response.getRawStatusCode())
+        .statusText(response.getStatusText())
+        .headers(response.getHeaders())
+        .body(body)
+        .responseTime(now)
+        .initialAge(age(response.getHeaders(), now))
+        .vary(vary)
+        .build();
+  }
+
+  /** True if the entry can be returned without revalidating it. */
+  private boolean fresh(Entry entry, Map<String, String> requestDirectives) {
+    if (requestDirectives.containsKey("no-cache")) {
+      return false;
+    }
+    long age = currentAge(entry, currentTimeMillis.getAsLong());
+    if (age > seconds(requestDirectives, "max-age", Long.MAX_VALUE)) {
+      return false;
+    }
+    return freshnessLifetime(entry.headers()) > age;
+  }
+
+  /** The number of seconds a response is fresh for, per its Cache-Control or Expires header. */
+  private long freshnessLifetime(HttpHeaders headers) {
+    Map<String, String> directives = directives(headers.get(HttpHeaders.CACHE_CONTROL));
+    if (directives.containsKey("no-cache")) {
+      return 0;
+    }
+    if (directives.containsKey("max-age")) {
+      return seconds(directives, "max-age", 0);
+    }
+    if (headers.getExpires() > 0) {
+      long date = date(headers) > 0 ? date(headers) : currentTimeMillis.getAsLong();
+      return TimeUnit.MILLISECONDS.toSeconds(Math.max(0, headers.getExpires() - date));
+    }
+    return 0;
+  }
+
+  @Override
+  public ClientHttpResponse intercept(
+      HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+    if (!enabled()) {
+      return execution.execute(request, body);
+    }
+    if (request.getMethod() != HttpMethod.GET) {
+      ClientHttpResponse response = execution.execute(request, body);
+      if (!SAFE.contains(request.getMethod()) && response.getRawStatusCode() < 400) {
+        store.invalidate(request.getURI().toString());
+      }
+      return response;
+    }
+    HttpHeaders requestHeaders = request.getHeaders();
+    Map<String, String> requestDirectives =
+        directives(requestHeaders.get(HttpHeaders.CACHE_CONTROL));
+    if (requestDirectives.containsKey("no-store")
+        || requestHeaders.containsKey(HttpHeaders.IF_NONE_MATCH)
+        || requestHeaders.containsKey(HttpHeaders.IF_MODIFIED_SINCE)
+        || requestHeaders.containsKey(HttpHeaders.RANGE)) {
+      return execution.execute(request, body);
+    }
+    String key = key(request);
+    Optional<Entry> cached = store.get(key).filter(entry -> matchesVary(entry, request));
+    if (cached.isPresent() && fresh(cached.get(), requestDirectives)) {
+      hits.increment();
+      return response(cached.get());
+    }
+    HttpRequest outgoing =
+        cached.isPresent() ? revalidation(request, cached.get().headers()) : request;
+    ClientHttpResponse response = execution.execute(outgoing, body);
+    if (cached.isPresent() && response.getRawStatusCode() == 304) {
+      response.close();
+      Entry refreshed = refreshed(cached.get(), response.getHeaders());
+      store.put(refreshed);
+      revalidations.increment();
+      return response(refreshed);
+    }
+    misses.increment();
+    if (!cacheable(response)) {
+      if (cached.isPresent()) {
+        store.remove(key);
+      }
+      return response;
+    }
+    BufferedClientHttpResponse buffered = BufferedClientHttpResponse.read(response);
+    if (buffered.body().length <= config.getCacheMaxEntryBytes()) {
+      store.put(entry(key, request, buffered, buffered.body()));
+    }
+    return buffered;
+  }
+
+  /** Identify a request by its URI and key headers. */
+  private String key(HttpRequest request) {
+    StringBuilder key = new StringBuilder(256).append(request.getURI());
+    for (String header : config.getCacheKeyHeaders()) {
+      List<String> values = request.getHeaders().get(header);
+      if (values != null) {
+        key.append('\n').append(header).append(": ").append(values);
+      }
+    }
+    return key.toString();
+  }
+
+  /** True if the request has the same values as the stored request for each Vary header. */
+  private boolean matchesVary(Entry entry, HttpRequest request) {
+    return entry.vary().entrySet().stream()
+        .allMatch(v -> v.getValue().equals(String.valueOf(request.getHeaders().get(v.getKey()))));
+  }
+
+  /** Update the stored response with the headers of a 304 response, per RFC 7234 section 4.3.4. */
+  private Entry refreshed(Entry entry, HttpHeaders notModified) {
+    long now = currentTimeMillis.getAsLong();
+    HttpHeaders headers = new HttpHeaders();
+    headers.putAll(entry.headers());
+    notModified.forEach(
+        (name, values) -> {
+          if (UNMERGED_HEADERS.stream().noneMatch(name::equalsIgnoreCase)) {
+            headers.put(name, values);
+          }
+        });
+    return entry
+        .toBuilder()
+        .headers(headers)
+        .responseTime(now)
+        .initialAge(age(notModified, now))
+        .build();
+  }
+
+  private Counter requests(String name, String result) {
+    return Counter.builder("http.client.cache.requests")
+        .description("Number of cacheable requests, by whether they were answered by the cache")
+        .tags("httpclient", name, "result", result)
+        .register(meters);
+  }
+
+  private ClientHttpResponse response(Entry entry) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.putAll(entry.headers());
+    headers.set("Age", String.valueOf(currentAge(entry, currentTimeMillis.getAsLong())));
+    return BufferedClientHttpResponse.of(entry.status(), entry.statusText(), headers, entry.body());
+  }
+
+  /** Add the validators of the stored response to a copy of the request. */
+  private HttpRequest revalidation(HttpRequest request, HttpHeaders stored) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.putAll(request.getHeaders());
+    if (stored.getETag() != null) {
+      headers.setIfNoneMatch(stored.getETag());
+    }
+    if (stored.getLastModified() > 0) {
+      headers.setIfModifiedSince(stored.getLastModified());
+    }
+    return new HttpRequestWrapper(request) {
+      @Override
+      public HttpHeaders getHeaders() {
+        return headers;
+      }
+    };
+  }
+}
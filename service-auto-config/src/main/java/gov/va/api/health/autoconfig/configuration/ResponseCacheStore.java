@@ -0,0 +1,450 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import static java.util.stream.Collectors.toList;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+
+/**
+ * The storage of a {@link ResponseCacheInterceptor}. Responses are kept in memory, least recently
+ * used first out, up to a total size. If a directory is configured, responses are also written to
+ * disk, up to a larger total size, so that responses evicted from memory, or cached by a previous
+ * run, can be read back without a request.
+ *
+ * <p>Keys start with the URI of the request, followed by a newline if anything else identifies the
+ * request. Keys can include credentials, so files only contain SHA-256 hashes of the key and URI,
+ * and are only readable by their owner where the file system supports it.
+ *
+ * <p>Disk reads and writes are done by the calling thread outside of the lock that guards the
+ * indexes, so a slow disk does not block callers whose responses are in memory.
+ */
+@Slf4j
+class ResponseCacheStore {
+  private static final String SUFFIX = ".response";
+
+  /** An estimate of the memory used by an entry in addition to its body and headers. */
+  private static final int OVERHEAD_BYTES = 256;
+
+  /** Guards against allocating huge arrays while reading a corrupt file. */
+  private static final int MAX_FIELD_BYTES = 256 * 1024 * 1024;
+
+  private final long maxMemoryBytes;
+
+  private final Path directory;
+
+  private final long maxDiskBytes;
+
+  private final Map<String, Entry> memory = new LinkedHashMap<>(16, 0.75f, true);
+
+  /** Files on disk by the hash of their key. */
+  private final Map<String, Stored> disk = new LinkedHashMap<>(16, 0.75f, true);
+
+  private long memoryBytes;
+
+  private long diskBytes;
+
+  private long memoryEvictions;
+
+  private long diskEvictions;
+
+  ResponseCacheStore(long maxMemoryBytes, Path directory, long maxDiskBytes) {
+    this.maxMemoryBytes = maxMemoryBytes;
+    this.directory = directory;
+    this.maxDiskBytes = maxDiskBytes;
+    if (directory != null) {
+      index();
+    }
+  }
+
+  /** Create a store configured by the given properties. */
+  static ResponseCacheStore of(HttpClientProperties config) {
+    return new ResponseCacheStore(
+        config.getCacheMaxMemoryBytes(),
+        config.getCacheDirectory() == null ? null : Paths.get(config.getCacheDirectory()),
+        config.getCacheMaxDiskBytes());
+  }
+
+  private static FileAttribute<?>[] ownerOnly(Path directory) {
+    if (!directory.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+      return new FileAttribute<?>[0];
+    }
+    return new FileAttribute<?>[] {
+      PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------"))
+    };
+  }
+
+  private static byte[] readBytes(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0 || length > MAX_FIELD_BYTES) {
+      throw new IOException("Corrupt field length " + length);
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return bytes;
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = readBytes(in);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /** The hex encoded SHA-256 hash of the value. */
+  static String sha256(String value) {
+    try {
+      byte[] digest =
+          MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+      StringBuilder hex = new StringBuilder(digest.length * 2);
+      for (byte b : digest) {
+        hex.append(String.format("%02x", b));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported", e);
+    }
+  }
+
+  /** The URI that a key starts with. */
+  static String uri(String key) {
+    int end = key.indexOf('\n');
+    return end < 0 ? key : key.substring(0, end);
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private void deleteQuietly(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      log.warn("Failed to delete cached response {}: {}", file, e.getMessage());
+    }
+  }
+
+  /** The number of entries in the given tier. */
+  synchronized int entries(Tier tier) {
+    return tier == Tier.MEMORY ? memory.size() : disk.size();
+  }
+
+  private void evictDisk() {
+    Iterator<Map.Entry<String, Stored>> eldest = disk.entrySet().iterator();
+    while (diskBytes > maxDiskBytes && eldest.hasNext()) {
+      Map.Entry<String, Stored> evicted = eldest.next();
+      eldest.remove();
+      diskBytes -= evicted.getValue().size();
+      diskEvictions++;
+      deleteQuietly(directory.resolve(evicted.getKey() + SUFFIX));
+    }
+  }
+
+  private void evictMemory() {
+    Iterator<Map.Entry<String, Entry>> eldest = memory.entrySet().iterator();
+    while (memoryBytes > maxMemoryBytes && eldest.hasNext()) {
+      memoryBytes -= eldest.next().getValue().size();
+      eldest.remove();
+      memoryEvictions++;
+    }
+  }
+
+  /** The number of entries evicted from the given tier to make room for others. */
+  synchronized long evictions(Tier tier) {
+    return tier == Tier.MEMORY ? memoryEvictions : diskEvictions;
+  }
+
+  private Path file(String key) {
+    return directory.resolve(sha256(key) + SUFFIX);
+  }
+
+  /** Get the entry for the key from memory, or from disk, promoting it to memory. */
+  Optional<Entry> get(String key) {
+    synchronized (this) {
+      Entry entry = memory.get(key);
+      if (entry != null) {
+        return Optional.of(entry);
+      }
+      if (directory == null || disk.get(sha256(key)) == null) {
+        return Optional.empty();
+      }
+    }
+    Optional<Entry> entry = read(file(key), key);
+    if (entry.isPresent()) {
+      synchronized (this) {
+        putInMemory(entry.get());
+      }
+    }
+    return entry;
+  }
+
+  /** Index the responses cached by a previous run, least recently modified first. */
+  private void index() {
+    try {
+      Files.createDirectories(directory);
+      List<Path> files;
+      try (Stream<Path> list = Files.list(directory)) {
+        files =
+            list.filter(f -> f.getFileName().toString().endsWith(SUFFIX))
+                .sorted(Comparator.comparing(f -> f.toFile().lastModified()))
+                .collect(toList());
+      }
+      for (Path file : files) {
+        Optional<Stored> stored = readStored(file);
+        if (stored.isPresent()
+            && file.getFileName().toString().equals(stored.get().keyHash() + SUFFIX)) {
+          disk.put(stored.get().keyHash(), stored.get());
+          diskBytes += stored.get().size();
+        } else {
+          deleteQuietly(file);
+        }
+      }
+      evictDisk();
+      log.info("Indexed {} cached responses in {}", disk.size(), directory);
+    } catch (IOException e) {
+      log.warn("Failed to index cached responses in {}: {}", directory, e.getMessage());
+    }
+  }
+
+  /** Remove every entry whose key starts with the URI. */
+  void invalidate(String uri) {
+    String uriHash = sha256(uri);
+    synchronized (this) {
+      List<String> keys =
+          memory.keySet().stream().filter(k -> uri(k).equals(uri)).collect(toList());
+      keys.forEach(this::removeFromMemory);
+      List<String> keyHashes =
+          disk.values().stream()
+              .filter(stored -> stored.uriHash().equals(uriHash))
+              .map(Stored::keyHash)
+              .collect(toList());
+      keyHashes.forEach(this::removeFromDisk);
+    }
+  }
+
+  /** Store the entry, replacing any previous entry for its key. */
+  void put(Entry entry) {
+    synchronized (this) {
+      putInMemory(entry);
+    }
+    if (directory == null) {
+      return;
+    }
+    Path file = file(entry.key());
+    try {
+      Path temp = Files.createTempFile(directory, ".response", ".tmp", ownerOnly(directory));
+      try {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+          entry.write(new DataOutputStream(out));
+        }
+        long size = Files.size(temp);
+        synchronized (this) {
+          try {
+            Files.move(
+                temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+          } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+          }
+          Stored stored = new Stored(sha256(entry.key()), sha256(uri(entry.key())), size);
+          Stored previous = disk.put(stored.keyHash(), stored);
+          diskBytes += size - (previous == null ? 0 : previous.size());
+          evictDisk();
+        }
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+    } catch (IOException e) {
+      log.warn("Failed to cache response in {}: {}", file, e.getMessage());
+    }
+  }
+
+  private void putInMemory(Entry entry) {
+    Entry previous =
+        entry.size() > maxMemoryBytes ? memory.remove(entry.key()) : memory.put(entry.key(), entry);
+    memoryBytes -= previous == null ? 0 : previous.size();
+    if (memory.get(entry.key()) == entry) {
+      memoryBytes += entry.size();
+    }
+    evictMemory();
+  }
+
+  private Optional<Entry> read(Path file, String key) {
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+      return Optional.of(Entry.read(new DataInputStream(in), key));
+    } catch (IOException | RuntimeException e) {
+      log.debug("Ignoring unreadable cached response {}: {}", file, e.getMessage());
+      return Optional.empty();
+    }
+  }
+
+  private Optional<Stored> readStored(Path file) {
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+      DataInputStream data = new DataInputStream(in);
+      return Optional.of(new Stored(readString(data), readString(data), Files.size(file)));
+    } catch (IOException | RuntimeException e) {
+      log.debug("Ignoring unreadable cached response {}: {}", file, e.getMessage());
+      return Optional.empty();
+    }
+  }
+
+  /** Remove the entry for the key from both tiers. */
+  synchronized void remove(String key) {
+    removeFromMemory(key);
+    if (directory != null) {
+      removeFromDisk(sha256(key));
+    }
+  }
+
+  private void removeFromDisk(String keyHash) {
+    Stored stored = disk.remove(keyHash);
+    if (stored != null) {
+      diskBytes -= stored.size();
+      deleteQuietly(directory.resolve(keyHash + SUFFIX));
+    }
+  }
+
+  private void removeFromMemory(String key) {
+    Entry entry = memory.remove(key);
+    if (entry != null) {
+      memoryBytes -= entry.size();
+    }
+  }
+
+  /** The total size of the entries in the given tier, in bytes. */
+  synchronized long size(Tier tier) {
+    return tier == Tier.MEMORY ? memoryBytes : diskBytes;
+  }
+
+  /** A response file, identified by the hashes of its key and URI. */
+  @Value
+  private static class Stored {
+    String keyHash;
+
+    String uriHash;
+
+    long size;
+  }
+
+  enum Tier {
+    MEMORY,
+    DISK
+  }
+
+  /**
+   * A cached response and what is needed to determine its age and whether it can satisfy a request.
+   */
+  @Value
+  @Builder(toBuilder = true)
+  static class Entry {
+    String key;
+
+    int status;
+
+    String statusText;
+
+    HttpHeaders headers;
+
+    byte[] body;
+
+    /** When the response was received, in epoch milliseconds. */
+    long responseTime;
+
+    /** The age of the response when it was received, in seconds. */
+    long initialAge;
+
+    /** The values of the request headers named by the Vary response header. */
+    Map<String, String> vary;
+
+    /** Read an entry written for the key, failing if the file was written for another key. */
+    static Entry read(DataInputStream in, String key) throws IOException {
+      if (!readString(in).equals(sha256(key))) {
+        throw new IOException("Cached response is for another key");
+      }
+      readString(in);
+      EntryBuilder entry =
+          Entry.builder()
+              .key(key)
+              .status(in.readInt())
+              .statusText(readString(in))
+              .responseTime(in.readLong())
+              .initialAge(in.readLong());
+      Map<String, String> vary = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+      for (int i = in.readInt(); i > 0; i--) {
+        vary.put(readString(in), readString(in));
+      }
+      HttpHeaders headers = new HttpHeaders();
+      for (int i = in.readInt(); i > 0; i--) {
+        String name = readString(in);
+        for (int j = in.readInt(); j > 0; j--) {
+          headers.add(name, readString(in));
+        }
+      }
+      byte[] body = readBytes(in);
+      return entry.vary(vary).headers(headers).body(body).build();
+    }
+
+    /** An estimate of the memory used by the entry. */
+    long size() {
+      long size = OVERHEAD_BYTES + body.length + key.length();
+      for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+        size += header.getKey().length();
+        for (String value : header.getValue()) {
+          size += value.length();
+        }
+      }
+      return size;
+    }
+
+    /** Write the entry, identified only by the hashes of its key and URI. */
+    void write(DataOutputStream out) throws IOException {
+      writeString(out, sha256(key));
+      writeString(out, sha256(uri(key)));
+      out.writeInt(status);
+      writeString(out, statusText);
+      out.writeLong(responseTime);
+      out.writeLong(initialAge);
+      out.writeInt(vary.size());
+      for (Map.Entry<String, String> value : vary.entrySet()) {
+        writeString(out, value.getKey());
+        writeString(out, value.getValue());
+      }
+      out.writeInt(headers.size());
+      for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+        writeString(out, header.getKey());
+        out.writeInt(header.getValue().size());
+        for (String value : header.getValue()) {
+          writeString(out, value);
+        }
+      }
+      out.writeInt(body.length);
+      out.write(body);
+      out.flush();
+    }
+  }
+}
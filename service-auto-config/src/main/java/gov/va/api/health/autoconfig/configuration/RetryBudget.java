@@ -0,0 +1,71 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Limits retries and hedged requests to a fraction of the original requests, so that a failing
+ * downstream service does not receive a multiple of its normal load. Each original request deposits
+ * a fraction of a token and each extra attempt withdraws a whole token. Tokens also accrue at a
+ * minimum rate, so that a quiet client can still retry. The balance is capped at ten seconds of the
+ * minimum rate, and at least ten tokens, which bounds bursts of retries.
+ */
+class RetryBudget {
+  private final double ratio;
+
+  private final double minPerSecond;
+
+  private final double maxTokens;
+
+  private final LongSupplier nanoTime;
+
+  private double tokens;
+
+  private long lastRefill;
+
+  RetryBudget(double ratio, double minPerSecond, LongSupplier nanoTime) {
+    this.ratio = Math.max(0, ratio);
+    this.minPerSecond = Math.max(0, minPerSecond);
+    this.maxTokens = Math.max(10, this.minPerSecond * 10);
+    this.nanoTime = nanoTime;
+    this.tokens = maxTokens;
+    this.lastRefill = nanoTime.getAsLong();
+  }
+
+  /** Create a budget configured by the given properties. */
+  static RetryBudget of(HttpClientProperties config) {
+    return new RetryBudget(
+        config.getRetryBudgetRatio(), config.getRetryBudgetMinPerSecond(), System::nanoTime);
+  }
+
+  /** The number of extra attempts that may currently be made. */
+  synchronized double available() {
+    refill();
+    return tokens;
+  }
+
+  /** Record an original request. */
+  synchronized void deposit() {
+    refill();
+    tokens = Math.min(maxTokens, tokens + ratio);
+  }
+
+  private void refill() {
+    long now = nanoTime.getAsLong();
+    tokens =
+        Math.min(
+            maxTokens,
+            tokens + (now - lastRefill) * minPerSecond / (double) TimeUnit.SECONDS.toNanos(1));
+    lastRefill = now;
+  }
+
+  /** Take a token for an extra attempt, if one is available. */
+  synchronized boolean tryWithdraw() {
+    refill();
+    if (tokens < 1) {
+      return false;
+    }
+    tokens--;
+    return true;
+  }
+}
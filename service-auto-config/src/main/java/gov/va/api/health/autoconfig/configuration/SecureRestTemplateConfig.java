@@ -1,146 +1,273 @@
 package gov.va.api.health.autoconfig.configuration;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
-import java.security.KeyManagementException;
-import java.security.KeyStore;
-import java.security.KeyStoreException;
-import java.security.NoSuchAlgorithmException;
-import java.security.UnrecoverableKeyException;
-import java.security.cert.CertificateException;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
-import javax.net.ssl.SSLContext;
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLSocketFactory;
 import lombok.AllArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.StringUtils;
-import org.apache.http.client.HttpClient;
+import org.apache.http.HttpHost;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
-import org.apache.http.conn.ssl.TrustAllStrategy;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClients;
-import org.apache.http.ssl.SSLContextBuilder;
+import org.apache.http.ssl.SSLContexts;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.http.client.BufferingClientHttpRequestFactory;
 import org.springframework.http.client.ClientHttpRequestFactory;
-import org.springframework.http.client.ClientHttpRequestInterceptor;
-import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
-import org.springframework.util.ResourceUtils;
-import org.springframework.util.StreamUtils;
+import org.springframework.util.ClassUtils;
 import org.springframework.web.client.RestTemplate;
 
 /**
  * This factory provides rest template that are configured for SSL communication per {@link
- * SslClientProperties}. Additionally this attaches an interceptor that will provide logging on
- * failed requests.
+ * SslClientProperties}. Connections are pooled and kept alive per {@link HttpClientProperties}.
+ * Additionally this attaches an interceptor that will provide logging on failed requests. Failures
+ * are logged asynchronously, sampled, and truncated per {@link HttpClientProperties}.
+ *
+ * <p>Request timers are attached by Spring Boot when the auto-configured RestTemplateBuilder is
+ * used, see {@link HttpClientMetricsConfig}.
+ *
+ * <p>Requests are guarded per host by the bulkheads and circuit breakers of a {@link
+ * HostResilienceInterceptor}, when enabled per {@link HttpClientProperties}. Idempotent requests
+ * can also be hedged and retried by a {@link HedgingRetryInterceptor}, which is the last
+ * interceptor so that each attempt is sent directly by the HTTP client.
+ *
+ * <p>Requests are sent with the pooled Apache HTTP client, or with an {@link Http2RequestFactory}
+ * that multiplexes requests over HTTP/2 connections when http-client.http2-enabled=true. The Apache
+ * client, its connection pool, and the pool metrics are only created when HTTP/2 is not enabled.
+ *
+ * <p>The primary rest template buffers responses in memory. A {@link StreamingRestTemplate} that
+ * does not buffer responses is available for large payloads.
  */
 @Configuration
-@Slf4j
 @AllArgsConstructor(onConstructor = @__({@Autowired}))
 public class SecureRestTemplateConfig {
   private final SslClientProperties config;
 
-  private Supplier<ClientHttpRequestFactory> bufferingRequestFactory(HttpClient client) {
-    return () ->
-        new BufferingClientHttpRequestFactory(new HttpComponentsClientHttpRequestFactory(client));
-  }
+  private final HttpClientProperties httpClientConfig;
 
-  private String fileOrClasspath(String path) {
-    if (StringUtils.startsWith(path, "file:") || StringUtils.startsWith(path, "classpath:")) {
-      return path;
-    }
-    throw new IllegalArgumentException("Expected file or classpath resources. Got " + path);
+  private Supplier<ClientHttpRequestFactory> bufferingRequestFactory() {
+    return () -> new BufferingClientHttpRequestFactory(requestFactory());
   }
 
-  private CloseableHttpClient httpClientWithSsl() {
-    HttpClientBuilder builder = HttpClients.custom();
-    if (config.isEnableClient()) {
-      builder.setSSLContext(sslContext());
-    }
-    if (!config.isVerify()) {
-      builder.setSSLHostnameVerifier(new NoopHostnameVerifier());
-    }
-    return builder.build();
-  }
-
-  private KeyStore loadKeyStore(String path, char[] password) {
-    try {
-      KeyStore keyStore = KeyStore.getInstance("JKS");
-      try (InputStream keystoreStream = ResourceUtils.getURL(fileOrClasspath(path)).openStream()) {
-        keyStore.load(keystoreStream, password);
-      }
-      return keyStore;
-    } catch (IOException | KeyStoreException | NoSuchAlgorithmException | CertificateException e) {
-      throw new FailedToConfigureSsl("Cannot load: " + path, e);
-    }
+  /** Reports the state of the secure bulkheads and circuit breakers as an actuator endpoint. */
+  @Bean
+  public HttpClientResilienceEndpoint httpClientResilienceEndpoint() {
+    return HttpClientResilienceEndpoint.of(secureHostResilience());
   }
 
-  private ClientHttpRequestInterceptor loggingInterceptor() {
-    return (request, body, execution) -> {
-      log.info("{} {}", request.getMethod(), request.getURI());
-      ClientHttpResponse response = execution.execute(request, body);
-      if (response.getStatusCode().isError()) {
-        log.error("--- REQUEST FAILED ---------------------------------");
-        log.error("{} {}", request.getMethod(), request.getURI());
-        log.error("Headers: {}", request.getHeaders());
-        log.error("Request Body:\n{}", new String(body, StandardCharsets.UTF_8));
-        log.error("--- RESPONSE ---------------------------------------");
-        log.error(
-            "Response: {} ({})",
-            response.getStatusCode(),
-            response.getStatusCode().getReasonPhrase());
-        log.error("Headers: {}", response.getHeaders());
-        log.error(
-            "Response Body:\n{}",
-            StreamUtils.copyToString(response.getBody(), StandardCharsets.UTF_8));
-        log.error("----------------------------------------------------");
-      } else {
-        log.info(
-            "Response from {} {} is {}",
-            request.getMethod(),
-            request.getURI(),
-            response.getStatusCode());
-      }
-      return response;
+  private ConnectionKeepAliveStrategy keepAliveStrategy() {
+    long keepAlive = httpClientConfig.getKeepAlive().toMillis();
+    return (response, context) -> {
+      long advertised =
+          DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+      return advertised > 0 ? Math.min(advertised, keepAlive) : keepAlive;
     };
   }
 
+  private ClientHttpRequestFactory requestFactory() {
+    return httpClientConfig.isHttp2Enabled()
+        ? secureHttp2RequestFactory()
+        : new HttpComponentsClientHttpRequestFactory(secureHttpClient());
+  }
+
   /**
    * Creates a RestTemplate that is configured to SSL. It will also have a logging interceptor that
    * will record information on a service call failure.
    */
   @Bean
+  @Primary
   public RestTemplate restTemplate(@Autowired RestTemplateBuilder restTemplateBuilder) {
     return restTemplateBuilder
-        .requestFactory(bufferingRequestFactory(httpClientWithSsl()))
-        .additionalInterceptors(loggingInterceptor())
+        .requestFactory(bufferingRequestFactory())
+        .additionalInterceptors(
+            secureResponseCache(),
+            secureSingleFlight(),
+            secureHostResilience(),
+            FailureLoggingInterceptor.of(secureFailureLog()),
+            secureHedgingRetry())
         .build();
   }
 
-  private SSLContext sslContext() {
-    try {
-      SSLContextBuilder builder =
-          SSLContextBuilder.create()
-              .loadKeyMaterial(
-                  loadKeyStore(config.getKeyStore(), config.keyStorePassword()),
-                  config.clientKeyPassword());
-      if (config.isUseTrustStore()) {
-        builder.loadTrustMaterial(
-            loadKeyStore(config.getTrustStore(), config.trustStorePassword()),
-            new TrustAllStrategy());
-      }
-      return builder.build();
-    } catch (KeyStoreException
-        | NoSuchAlgorithmException
-        | UnrecoverableKeyException
-        | KeyManagementException e) {
-      throw new FailedToConfigureSsl(e);
+  private HttpRoute route(String url) {
+    HttpHost host = HttpHost.create(url);
+    boolean secure = "https".equalsIgnoreCase(host.getSchemeName());
+    int port = host.getPort() > 0 ? host.getPort() : secure ? 443 : 80;
+    return new HttpRoute(
+        new HttpHost(host.getHostName(), port, host.getSchemeName()), null, secure);
+  }
+
+  /**
+   * Connection pool shared by the secure rest templates. Pool statistics are published by {@link
+   * #secureConnectionManagerMetrics()}, and the pool publishes its own lease wait times.
+   */
+  @Bean
+  @ConditionalOnProperty(
+      name = "http-client.http2-enabled",
+      havingValue = "false",
+      matchIfMissing = true)
+  public LeaseTimingConnectionManager secureConnectionManager() {
+    LeaseTimingConnectionManager pool =
+        new LeaseTimingConnectionManager(
+            "secure",
+            socketFactoryRegistry(),
+            httpClientConfig.getTimeToLive().toMillis(),
+            TimeUnit.MILLISECONDS);
+    pool.setMaxTotal(httpClientConfig.getMaxConnections());
+    pool.setDefaultMaxPerRoute(httpClientConfig.getMaxConnectionsPerRoute());
+    for (Map.Entry<String, Integer> override :
+        httpClientConfig.getRouteMaxConnections().entrySet()) {
+      pool.setMaxPerRoute(route(override.getKey()), override.getValue());
+    }
+    pool.setValidateAfterInactivity((int) httpClientConfig.getValidateAfterInactivity().toMillis());
+    return pool;
+  }
+
+  /** Publishes the leased, available, pending, and max connections of the secure pool. */
+  @Bean
+  @ConditionalOnProperty(
+      name = "http-client.http2-enabled",
+      havingValue = "false",
+      matchIfMissing = true)
+  public MeterBinder secureConnectionManagerMetrics() {
+    return ConnectionPoolMetrics.of("secure", secureConnectionManager());
+  }
+
+  /**
+   * Failure logging shared by the secure rest templates, so that both draw from the same sampling
+   * and rate limit, and are logged from the same queue.
+   */
+  @Bean
+  FailureLog secureFailureLog() {
+    return FailureLog.of(httpClientConfig);
+  }
+
+  /**
+   * Hedging and retries shared by the secure rest templates, so that both draw from the same retry
+   * budget.
+   */
+  @Bean
+  public HedgingRetryInterceptor secureHedgingRetry() {
+    return new HedgingRetryInterceptor("secure", httpClientConfig);
+  }
+
+  /**
+   * Bulkheads and circuit breakers shared by the secure rest templates, so that both count against
+   * the same limits for each host.
+   */
+  @Bean
+  public HostResilienceInterceptor secureHostResilience() {
+    return new HostResilienceInterceptor("secure", httpClientConfig);
+  }
+
+  /**
+   * The HTTP/2 capable client backing the secure rest templates in place of {@link
+   * #secureHttpClient()}, when enabled per {@link HttpClientProperties}.
+   */
+  @Bean
+  @ConditionalOnProperty(name = "http-client.http2-enabled", havingValue = "true")
+  public Http2RequestFactory secureHttp2RequestFactory() {
+    if (!ClassUtils.isPresent("okhttp3.OkHttpClient", getClass().getClassLoader())) {
+      throw new IllegalStateException(
+          "http-client.http2-enabled=true requires com.squareup.okhttp3:okhttp on the classpath");
     }
+    return new Http2RequestFactory("secure", config, httpClientConfig, sslMaterialCache());
+  }
+
+  /**
+   * The HTTP client backing the secure rest templates. Idle and expired connections are evicted in
+   * the background.
+   */
+  @Bean
+  @ConditionalOnProperty(
+      name = "http-client.http2-enabled",
+      havingValue = "false",
+      matchIfMissing = true)
+  public CloseableHttpClient secureHttpClient() {
+    return HttpClients.custom()
+        .setConnectionManager(secureConnectionManager())
+        .setKeepAliveStrategy(keepAliveStrategy())
+        .setDefaultRequestConfig(
+            RequestConfig.custom()
+                .setConnectionRequestTimeout(
+                    (int) httpClientConfig.getConnectionRequestTimeout().toMillis())
+                .build())
+        .evictExpiredConnections()
+        .evictIdleConnections(
+            httpClientConfig.getEvictIdleAfter().toMillis(), TimeUnit.MILLISECONDS)
+        .build();
+  }
+
+  /** Caches responses to GET requests made with the primary rest template. */
+  @Bean
+  public ResponseCacheInterceptor secureResponseCache() {
+    return new ResponseCacheInterceptor("secure", httpClientConfig);
+  }
+
+  /** Coalesces identical concurrent GET requests made with the primary rest template. */
+  @Bean
+  public SingleFlightInterceptor secureSingleFlight() {
+    return new SingleFlightInterceptor("secure", httpClientConfig);
+  }
+
+  private Registry<ConnectionSocketFactory> socketFactoryRegistry() {
+    SSLSocketFactory sslSocketFactory =
+        config.isEnableClient()
+            ? sslMaterialCache().reloading(config).socketFactory()
+            : SSLContexts.createDefault().getSocketFactory();
+    HostnameVerifier hostnameVerifier =
+        config.isVerify()
+            ? SSLConnectionSocketFactory.getDefaultHostnameVerifier()
+            : NoopHostnameVerifier.INSTANCE;
+    return RegistryBuilder.<ConnectionSocketFactory>create()
+        .register("http", PlainConnectionSocketFactory.getSocketFactory())
+        .register("https", new SSLConnectionSocketFactory(sslSocketFactory, hostnameVerifier))
+        .build();
+  }
+
+  /**
+   * The key stores and SSL contexts used by the secure clients. The cache is shared by every
+   * application context in the JVM.
+   */
+  @Bean
+  public SslMaterialCache sslMaterialCache() {
+    return SslMaterialCache.shared();
+  }
+
+  private Supplier<ClientHttpRequestFactory> streamingRequestFactory() {
+    return this::requestFactory;
+  }
+
+  /**
+   * Creates a RestTemplate that is configured like the primary rest template, but passes response
+   * bodies through without buffering them in memory. Inject it using {@link StreamingRestTemplate}.
+   */
+  @Bean
+  @StreamingRestTemplate
+  @ConditionalOnProperty(name = "http-client.streaming", havingValue = "true")
+  public RestTemplate streamingRestTemplate(@Autowired RestTemplateBuilder restTemplateBuilder) {
+    return restTemplateBuilder
+        .requestFactory(streamingRequestFactory())
+        .additionalInterceptors(
+            secureHostResilience(),
+            FailureLoggingInterceptor.of(secureFailureLog()),
+            secureHedgingRetry())
+        .build();
   }
 
   public static class FailedToConfigureSsl extends RuntimeException {
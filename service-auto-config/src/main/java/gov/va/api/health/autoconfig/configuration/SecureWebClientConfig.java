@@ -0,0 +1,294 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import gov.va.api.health.autoconfig.configuration.SecureRestTemplateConfig.FailedToConfigureSsl;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Subscription;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * This factory provides a non-blocking web client that is configured for SSL communication per
+ * {@link SslClientProperties} using the same key and trust stores as {@link
+ * SecureRestTemplateConfig}. Connection pool limits and timeouts are configured per {@link
+ * HttpClientProperties}. Additionally this attaches a filter that will provide logging on failed
+ * requests.
+ *
+ * <p>This configuration is only available if Spring WebFlux and Reactor Netty are on the classpath.
+ */
+@Configuration
+@ConditionalOnClass({WebClient.class, HttpClient.class})
+@Slf4j
+@AllArgsConstructor(onConstructor = @__({@Autowired}))
+public class SecureWebClientConfig {
+  private final SslClientProperties config;
+
+  private final HttpClientProperties httpClientConfig;
+
+  private HttpClient httpClient() {
+    int connectTimeout = (int) httpClientConfig.getConnectTimeout().toMillis();
+    long responseTimeout = httpClientConfig.getResponseTimeout().toMillis();
+    return HttpClient.create(secureConnectionProvider())
+        .secure(spec -> spec.sslContext(sslContext()).handlerConfigurator(this::verifyHostname))
+        .tcpConfiguration(tcp -> tcp.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeout))
+        .doOnRequest(
+            (request, connection) ->
+                connection.addHandlerLast(
+                    new ReadTimeoutHandler(responseTimeout, TimeUnit.MILLISECONDS)));
+  }
+
+  /**
+   * Log the failure once the logged prefix of its body has been read, which does not wait for the
+   * caller. The body is passed through to the caller as it is read, and only the prefix is copied.
+   */
+  private Mono<ClientResponse> logFailure(
+      FailureLog failureLog, ClientRequest request, ClientResponse response) {
+    if (!failureLog.permit()) {
+      return Mono.just(response);
+    }
+    FailureLog.Failure.FailureBuilder failure =
+        FailureLog.Failure.builder()
+            .method(String.valueOf(request.method()))
+            .uri(String.valueOf(request.url()))
+            .requestHeaders(request.headers())
+            .status(response.rawStatusCode())
+            .reason(response.statusCode().getReasonPhrase())
+            .responseHeaders(response.headers().asHttpHeaders());
+    BodyPrefix prefix = new BodyPrefix(failureLog.maxBodyBytes());
+    FailedBody body =
+        new FailedBody(
+            prefix,
+            () -> failureLog.submit(failure.responseBody(prefix.describe(failureLog)).build()));
+    response.bodyToFlux(DataBuffer.class).subscribe(body);
+    return Mono.just(ClientResponse.from(response).body(body.flux()).build());
+  }
+
+  /** Log the requests of a web client, and its failures to the given failure log. */
+  ExchangeFilterFunction loggingFilter(FailureLog failureLog) {
+    return (request, next) -> {
+      log.debug("{} {}", request.method(), request.url());
+      return next.exchange(request)
+          .flatMap(
+              response -> {
+                if (response.statusCode().isError()) {
+                  return logFailure(failureLog, request, response);
+                }
+                log.debug(
+                    "Response from {} {} is {}",
+                    request.method(),
+                    request.url(),
+                    response.statusCode());
+                return Mono.just(response);
+              });
+    };
+  }
+
+  /**
+   * Connection pool for the secure web client. Each remote host may have up to the configured
+   * maximum connections per route.
+   */
+  @Bean(destroyMethod = "dispose")
+  public ConnectionProvider secureConnectionProvider() {
+    return ConnectionProvider.fixed(
+        "secure",
+        httpClientConfig.getMaxConnectionsPerRoute(),
+        httpClientConfig.getConnectionRequestTimeout().toMillis());
+  }
+
+  private SslContext sslContext() {
+    try {
+      SslContextBuilder builder = SslContextBuilder.forClient();
+      if (config.isEnableClient()) {
+        ReloadingSslMaterial material = SslMaterialCache.shared().reloading(config);
+        builder.keyManager(material.keyManagerFactory());
+        if (config.isUseTrustStore()) {
+          builder.trustManager(material.trustManagerFactory());
+        }
+      }
+      return builder.build();
+    } catch (SSLException e) {
+      throw new FailedToConfigureSsl(e);
+    }
+  }
+
+  /**
+   * Check that the certificate of the server matches its host name if verification is enabled, as
+   * the secure rest templates do. This runs after the default configuration of Reactor Netty, so it
+   * can also turn off the check that Reactor Netty enables by default. The JDK ignores a null
+   * algorithm, so an empty one turns the check off.
+   */
+  private void verifyHostname(SslHandler handler) {
+    SSLEngine engine = handler.engine();
+    SSLParameters parameters = engine.getSSLParameters();
+    parameters.setEndpointIdentificationAlgorithm(config.isVerify() ? "HTTPS" : "");
+    engine.setSSLParameters(parameters);
+  }
+
+  /**
+   * Creates a WebClient that is configured to SSL. It will also have a logging filter that will
+   * record information on a service call failure. Responses are streamed, and only the logged
+   * prefix of the body of a failed response is read before the caller reads it.
+   */
+  @Bean
+  public WebClient webClient(@Autowired WebClient.Builder webClientBuilder) {
+    return webClientBuilder
+        .clientConnector(new ReactorClientHttpConnector(httpClient()))
+        .filter(loggingFilter(FailureLog.of(httpClientConfig)))
+        .build();
+  }
+
+  /** The first bytes of a body, and the number of bytes read so far. */
+  private static final class BodyPrefix {
+    private final byte[] prefix;
+
+    private int length;
+
+    private long total;
+
+    BodyPrefix(int limit) {
+      prefix = new byte[Math.max(0, limit)];
+    }
+
+    /** Copy the bytes of the buffer that fit in the prefix, without consuming them. */
+    synchronized void copy(DataBuffer buffer) {
+      int count = Math.min(prefix.length - length, buffer.readableByteCount());
+      buffer.asByteBuffer().get(prefix, length, count);
+      length += count;
+      total += buffer.readableByteCount();
+    }
+
+    synchronized String describe(FailureLog failureLog) {
+      return failureLog.body(Arrays.copyOf(prefix, length), total);
+    }
+
+    synchronized boolean full() {
+      return length == prefix.length;
+    }
+  }
+
+  /**
+   * The body of a failed response. Its logged prefix is read as soon as the response arrives, so
+   * the failure is logged even if the caller never reads the body. Buffers read before the caller
+   * subscribes are held for it, and the rest of the body is read as the caller requests it.
+   */
+  private static final class FailedBody extends BaseSubscriber<DataBuffer> {
+    private final BodyPrefix prefix;
+
+    private final Runnable log;
+
+    private final List<DataBuffer> early = new ArrayList<>();
+
+    private FluxSink<DataBuffer> sink;
+
+    private boolean done;
+
+    private Throwable error;
+
+    private boolean logged;
+
+    FailedBody(BodyPrefix prefix, Runnable log) {
+      this.prefix = prefix;
+      this.log = log;
+    }
+
+    private synchronized void attach(FluxSink<DataBuffer> subscriber) {
+      if (sink != null) {
+        subscriber.error(new IllegalStateException("The body may only be read once"));
+        return;
+      }
+      sink = subscriber;
+      early.forEach(sink::next);
+      early.clear();
+      if (done) {
+        if (error == null) {
+          sink.complete();
+        } else {
+          sink.error(error);
+        }
+        return;
+      }
+      sink.onRequest(this::request);
+      sink.onCancel(
+          () -> {
+            cancel();
+            logOnce();
+          });
+    }
+
+    Flux<DataBuffer> flux() {
+      return Flux.create(this::attach);
+    }
+
+    @Override
+    protected synchronized void hookOnComplete() {
+      logOnce();
+      done = true;
+      if (sink != null) {
+        sink.complete();
+      }
+    }
+
+    @Override
+    protected synchronized void hookOnError(Throwable throwable) {
+      logOnce();
+      done = true;
+      error = throwable;
+      if (sink != null) {
+        sink.error(throwable);
+      }
+    }
+
+    @Override
+    protected synchronized void hookOnNext(DataBuffer buffer) {
+      prefix.copy(buffer);
+      if (sink != null) {
+        sink.next(buffer);
+        return;
+      }
+      early.add(buffer);
+      if (prefix.full()) {
+        logOnce();
+      } else {
+        request(1);
+      }
+    }
+
+    @Override
+    protected void hookOnSubscribe(Subscription subscription) {
+      request(1);
+    }
+
+    private synchronized void logOnce() {
+      if (!logged) {
+        logged = true;
+        log.run();
+      }
+    }
+  }
+}
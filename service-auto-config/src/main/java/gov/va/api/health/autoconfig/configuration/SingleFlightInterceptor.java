@@ -0,0 +1,155 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * Coalesces identical GET requests that are in flight at the same time into a single request. The
+ * first caller, the leader, sends the request and reads the response into memory. Callers that
+ * arrive before it completes, the followers, wait for the leader and each receive their own copy of
+ * the response. If the leader fails, the followers fail with it.
+ *
+ * <p>Requests are identical if they have the same URI and the same values for each of the key
+ * headers, e.g. Authorization, so that callers never receive a response meant for someone else.
+ * Conditional and range requests are never coalesced, since their responses, e.g. a 304 sent to
+ * revalidate a cached response, would not answer an unconditional request for the same URI.
+ * Coalescing is disabled by default, see {@link HttpClientProperties}. Since responses are held in
+ * memory, it is only used by the buffering rest template.
+ *
+ * <p>The number of leaders and followers is published as the http.client.single.flight counter,
+ * tagged by role. The coalescing ratio is followers divided by all requests.
+ */
+public class SingleFlightInterceptor implements ClientHttpRequestInterceptor, MeterBinder {
+  private static final List<String> PARTIAL_HEADERS =
+      Arrays.asList(
+          HttpHeaders.IF_MATCH,
+          HttpHeaders.IF_NONE_MATCH,
+          HttpHeaders.IF_MODIFIED_SINCE,
+          HttpHeaders.IF_UNMODIFIED_SINCE,
+          HttpHeaders.IF_RANGE,
+          HttpHeaders.RANGE);
+
+  private final CompositeMeterRegistry meters = new CompositeMeterRegistry();
+
+  private final HttpClientProperties config;
+
+  private final Map<String, CompletableFuture<BufferedClientHttpResponse>> inFlight =
+      new ConcurrentHashMap<>();
+
+  private final Counter leaders;
+
+  private final Counter followers;
+
+  /** Create an interceptor for the named client. */
+  public SingleFlightInterceptor(String name, HttpClientProperties config) {
+    this.config = config;
+    leaders = requests(name, "leader");
+    followers = requests(name, "follower");
+    Gauge.builder("http.client.single.flight.in.flight", inFlight, Map::size)
+        .description("Number of distinct requests that callers may currently join")
+        .tag("httpclient", name)
+        .register(meters);
+  }
+
+  /** True if the response to the request may depend on what the caller already has. */
+  private static boolean partial(HttpRequest request) {
+    return PARTIAL_HEADERS.stream().anyMatch(request.getHeaders()::containsKey);
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    meters.add(registry);
+  }
+
+  /** True if coalescing is enabled. */
+  public boolean enabled() {
+    return config.isSingleFlightEnabled();
+  }
+
+  private ClientHttpResponse follow(CompletableFuture<BufferedClientHttpResponse> leader)
+      throws IOException {
+    try {
+      return leader.get().copy();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for a coalesced request");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw new IOException("Coalesced request failed: " + e.getCause().getMessage(), e);
+      }
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  @Override
+  public ClientHttpResponse intercept(
+      HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+    if (!enabled()
+        || request.getMethod() != HttpMethod.GET
+        || (body != null && body.length > 0)
+        || partial(request)) {
+      return execution.execute(request, body);
+    }
+    String key = key(request);
+    CompletableFuture<BufferedClientHttpResponse> mine = new CompletableFuture<>();
+    CompletableFuture<BufferedClientHttpResponse> leader = inFlight.putIfAbsent(key, mine);
+    if (leader != null) {
+      followers.increment();
+      return follow(leader);
+    }
+    leaders.increment();
+    BufferedClientHttpResponse response;
+    try {
+      response = BufferedClientHttpResponse.read(execution.execute(request, body));
+    } catch (IOException | RuntimeException | Error e) {
+      inFlight.remove(key, mine);
+      mine.completeExceptionally(e);
+      throw e;
+    }
+    inFlight.remove(key, mine);
+    mine.complete(response);
+    return response.copy();
+  }
+
+  /** Identify a request by its URI and key headers. */
+  private String key(HttpRequest request) {
+    StringBuilder key = new StringBuilder(256).append(request.getURI());
+    for (String header : config.getSingleFlightKeyHeaders()) {
+      List<String> values = request.getHeaders().get(header);
+      if (values != null) {
+        key.append('\n').append(header).append(": ").append(values);
+      }
+    }
+    return key.toString();
+  }
+
+  private Counter requests(String name, String role) {
+    return Counter.builder("http.client.single.flight")
+        .description("Number of GET requests sent by leaders or coalesced into them by followers")
+        .tags("httpclient", name, "role", role)
+        .register(meters);
+  }
+}
@@ -1,5 +1,6 @@
 package gov.va.api.health.autoconfig.configuration;
 
+import java.time.Duration;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -20,7 +21,11 @@ import org.springframework.context.annotation.Configuration;
  * ssl.use-trust-store=true
  * ssl.trust-store=file:certs/system/DVP-NONPROD-truststore.jks
  * ssl.trust-store-password=secret
+ * ssl.reload-interval=1m
  * </pre>
+ *
+ * <p>If a reload interval is specified, the key and trust stores are checked for changes on that
+ * interval and new connections will use the updated material without restarting.
  */
 @SuppressWarnings("DefaultAnnotationParam")
 @Configuration
@@ -41,6 +46,7 @@ public class SslClientProperties {
   private boolean useTrustStore;
   private String trustStore;
   private String trustStorePassword;
+  private Duration reloadInterval;
 
   char[] clientKeyPassword() {
     return getClientKeyPassword().toCharArray();
@@ -0,0 +1,243 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import gov.va.api.health.autoconfig.configuration.SecureRestTemplateConfig.FailedToConfigureSsl;
+import java.io.FileNotFoundException;
+import java.net.URL;
+import java.security.KeyManagementException;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.NoSuchAlgorithmException;
+import java.security.UnrecoverableKeyException;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import lombok.Value;
+import org.apache.http.conn.ssl.TrustAllStrategy;
+import org.apache.http.ssl.SSLContextBuilder;
+import org.springframework.util.ResourceUtils;
+
+/**
+ * A process-wide cache of key stores and SSL contexts. Stores are identified by their path,
+ * password, and last modified time, so a store that changes on disk is reloaded the next time it is
+ * requested. Sharing SSL contexts allows every client, including those in other application
+ * contexts in the same JVM, to resume TLS sessions with the same hosts.
+ */
+public final class SslMaterialCache {
+  private static final SslMaterialCache SHARED = new SslMaterialCache();
+
+  private final ConcurrentMap<StoreKey, KeyStore> keyStores = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<ContextKey, SSLContext> sslContexts = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<MaterialKey, ReloadingSslMaterial> reloading =
+      new ConcurrentHashMap<>();
+
+  private final ScheduledThreadPoolExecutor reloader;
+
+  private SslMaterialCache() {
+    reloader =
+        new ScheduledThreadPoolExecutor(
+            1,
+            runnable -> {
+              Thread thread = new Thread(runnable, "ssl-material-reloader");
+              thread.setDaemon(true);
+              return thread;
+            });
+    reloader.setRemoveOnCancelPolicy(true);
+  }
+
+  /** The cache shared by every client configuration in this JVM. */
+  public static SslMaterialCache shared() {
+    return SHARED;
+  }
+
+  /**
+   * Discard all cached stores and contexts. Reloading material that is already in use keeps its
+   * current stores, but no longer checks for changes.
+   */
+  public void clear() {
+    keyStores.clear();
+    sslContexts.clear();
+    reloading.values().forEach(ReloadingSslMaterial::close);
+    reloading.clear();
+  }
+
+  private SSLContext createSslContext(SslClientProperties config) {
+    try {
+      SSLContextBuilder builder =
+          SSLContextBuilder.create()
+              .loadKeyMaterial(
+                  keyStore(config.getKeyStore(), config.keyStorePassword()),
+                  config.clientKeyPassword());
+      if (config.isUseTrustStore()) {
+        builder.loadTrustMaterial(
+            keyStore(config.getTrustStore(), config.trustStorePassword()), new TrustAllStrategy());
+      }
+      return builder.build();
+    } catch (KeyStoreException
+        | NoSuchAlgorithmException
+        | UnrecoverableKeyException
+        | KeyManagementException e) {
+      throw new FailedToConfigureSsl(e);
+    }
+  }
+
+  /** Create a key manager factory for the configured key store and client key password. */
+  public KeyManagerFactory keyManagerFactory(SslClientProperties config) {
+    try {
+      KeyManagerFactory factory =
+          KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+      factory.init(
+          keyStore(config.getKeyStore(), config.keyStorePassword()), config.clientKeyPassword());
+      return factory;
+    } catch (KeyStoreException | NoSuchAlgorithmException | UnrecoverableKeyException e) {
+      throw new FailedToConfigureSsl(e);
+    }
+  }
+
+  /**
+   * Return the JKS key store at the given file or classpath resource, loading it if it has not been
+   * loaded or has been modified since it was loaded.
+   */
+  public KeyStore keyStore(String path, char[] password) {
+    StoreKey key = StoreKey.of(path, lastModified(path), new String(password));
+    KeyStore keyStore = keyStores.get(key);
+    if (keyStore != null) {
+      return keyStore;
+    }
+    keyStores.keySet().removeIf(k -> k.isOlderVersionOf(key));
+    return keyStores.computeIfAbsent(key, k -> SslStores.load(path, password));
+  }
+
+  private long lastModified(String path) {
+    try {
+      URL url = ResourceUtils.getURL(SslStores.fileOrClasspath(path));
+      return ResourceUtils.isFileURL(url) ? ResourceUtils.getFile(url).lastModified() : 0;
+    } catch (FileNotFoundException e) {
+      throw new FailedToConfigureSsl("Cannot load: " + path, e);
+    }
+  }
+
+  /**
+   * Return the reloading material for the given configuration. Every client using the same stores,
+   * passwords, and reload interval shares the material and the background check for changes. The
+   * material uses a copy of the configuration, so it is not affected if the properties are rebound.
+   */
+  ReloadingSslMaterial reloading(SslClientProperties config) {
+    return reloading.computeIfAbsent(
+        MaterialKey.of(config), k -> ReloadingSslMaterial.of(k.config(), this, reloader));
+  }
+
+  /**
+   * Return the SSL context for the configured key store, client key, and optional trust store. As
+   * with the RestTemplate configuration, any server certificate is trusted when a trust store is
+   * used.
+   */
+  public SSLContext sslContext(SslClientProperties config) {
+    ContextKey key =
+        ContextKey.of(
+            storeKey(config.getKeyStore(), config.getKeyStorePassword()),
+            config.getClientKeyPassword(),
+            config.isUseTrustStore()
+                ? storeKey(config.getTrustStore(), config.getTrustStorePassword())
+                : null);
+    SSLContext sslContext = sslContexts.get(key);
+    if (sslContext != null) {
+      return sslContext;
+    }
+    sslContexts.keySet().removeIf(k -> k.isOlderVersionOf(key));
+    return sslContexts.computeIfAbsent(key, k -> createSslContext(config));
+  }
+
+  private StoreKey storeKey(String path, String password) {
+    return StoreKey.of(path, lastModified(path), password);
+  }
+
+  /** Create a trust manager factory for the configured trust store. */
+  public TrustManagerFactory trustManagerFactory(SslClientProperties config) {
+    try {
+      TrustManagerFactory factory =
+          TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+      factory.init(keyStore(config.getTrustStore(), config.trustStorePassword()));
+      return factory;
+    } catch (KeyStoreException | NoSuchAlgorithmException e) {
+      throw new FailedToConfigureSsl(e);
+    }
+  }
+
+  @Value(staticConstructor = "of")
+  private static class ContextKey {
+    StoreKey keyStore;
+
+    String clientKeyPassword;
+
+    StoreKey trustStore;
+
+    boolean isOlderVersionOf(ContextKey other) {
+      return keyStore.isOlderVersionOf(other.keyStore())
+          || (trustStore != null
+              && other.trustStore() != null
+              && trustStore.isOlderVersionOf(other.trustStore()));
+    }
+  }
+
+  /** An immutable snapshot of the properties used by reloading material. */
+  @Value
+  private static class MaterialKey {
+    String keyStore;
+
+    String keyStorePassword;
+
+    String clientKeyPassword;
+
+    boolean useTrustStore;
+
+    String trustStore;
+
+    String trustStorePassword;
+
+    Duration reloadInterval;
+
+    static MaterialKey of(SslClientProperties config) {
+      return new MaterialKey(
+          config.getKeyStore(),
+          config.getKeyStorePassword(),
+          config.getClientKeyPassword(),
+          config.isUseTrustStore(),
+          config.getTrustStore(),
+          config.getTrustStorePassword(),
+          config.getReloadInterval());
+    }
+
+    SslClientProperties config() {
+      return SslClientProperties.builder()
+          .enableClient(true)
+          .keyStore(keyStore)
+          .keyStorePassword(keyStorePassword)
+          .clientKeyPassword(clientKeyPassword)
+          .useTrustStore(useTrustStore)
+          .trustStore(trustStore)
+          .trustStorePassword(trustStorePassword)
+          .reloadInterval(reloadInterval)
+          .build();
+    }
+  }
+
+  @Value(staticConstructor = "of")
+  private static class StoreKey {
+    String path;
+
+    long lastModified;
+
+    String password;
+
+    /** Material loaded from a previous version of a store will not be used again. */
+    boolean isOlderVersionOf(StoreKey other) {
+      return path.equals(other.path()) && lastModified != other.lastModified();
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import gov.va.api.health.autoconfig.configuration.SecureRestTemplateConfig.FailedToConfigureSsl;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateException;
+import lombok.experimental.UtilityClass;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.util.ResourceUtils;
+
+/** Loads the JKS key and trust stores described by the SSL client properties. */
+@UtilityClass
+class SslStores {
+
+  /** Ensure the path is a file or classpath resource. */
+  String fileOrClasspath(String path) {
+    if (StringUtils.startsWith(path, "file:") || StringUtils.startsWith(path, "classpath:")) {
+      return path;
+    }
+    throw new IllegalArgumentException("Expected file or classpath resources. Got " + path);
+  }
+
+  /** Load a JKS key store from a file or classpath resource. */
+  KeyStore load(String path, char[] password) {
+    try {
+      KeyStore keyStore = KeyStore.getInstance("JKS");
+      try (InputStream keystoreStream = ResourceUtils.getURL(fileOrClasspath(path)).openStream()) {
+        keyStore.load(keystoreStream, password);
+      }
+      return keyStore;
+    } catch (IOException | KeyStoreException | NoSuchAlgorithmException | CertificateException e) {
+      throw new FailedToConfigureSsl("Cannot load: " + path, e);
+    }
+  }
+}
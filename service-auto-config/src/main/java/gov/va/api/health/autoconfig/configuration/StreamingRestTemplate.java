@@ -0,0 +1,26 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import org.springframework.beans.factory.annotation.Qualifier;
+
+/**
+ * Qualifies the streaming RestTemplate provided by {@link SecureRestTemplateConfig}. Response
+ * bodies from this template are not buffered in memory, which makes it suitable for large payloads.
+ * It is only available when http-client.streaming=true.
+ *
+ * <pre>
+ * &#64;Autowired
+ * MyClient(&#64;StreamingRestTemplate RestTemplate restTemplate) {
+ *   ...
+ * }
+ * </pre>
+ */
+@Target({ElementType.FIELD, ElementType.METHOD, ElementType.PARAMETER, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Qualifier
+public @interface StreamingRestTemplate {}
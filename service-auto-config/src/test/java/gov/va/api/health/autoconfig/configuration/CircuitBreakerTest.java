@@ -0,0 +1,109 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import gov.va.api.health.autoconfig.configuration.CircuitBreaker.State;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+  private final AtomicLong now = new AtomicLong();
+
+  private final CircuitBreaker circuitBreaker =
+      new CircuitBreaker(
+          HttpClientProperties.builder()
+              .circuitBreakerEnabled(true)
+              .circuitBreakerFailureRateThreshold(50)
+              .circuitBreakerSlowCallRateThreshold(80)
+              .circuitBreakerSlowCallDuration(Duration.ofNanos(100))
+              .circuitBreakerWindowSize(4)
+              .circuitBreakerMinimumCalls(4)
+              .circuitBreakerOpenDuration(Duration.ofNanos(1000))
+              .circuitBreakerHalfOpenCalls(2)
+              .build(),
+          now::get);
+
+  private void call(boolean failed) {
+    call(1, failed);
+  }
+
+  private void call(long nanos, boolean failed) {
+    assertThat(circuitBreaker.tryAcquire()).isTrue();
+    circuitBreaker.onResult(nanos, failed);
+  }
+
+  private void open() {
+    call(true);
+    call(true);
+    call(false);
+    call(false);
+    assertThat(circuitBreaker.state()).isEqualTo(State.OPEN);
+  }
+
+  @Test
+  public void circuitClosesWhenProbesAreHealthy() {
+    open();
+    now.addAndGet(1000);
+    assertThat(circuitBreaker.state()).isEqualTo(State.HALF_OPEN);
+    call(false);
+    call(false);
+    assertThat(circuitBreaker.state()).isEqualTo(State.CLOSED);
+    assertThat(circuitBreaker.windowCalls()).isZero();
+  }
+
+  @Test
+  public void circuitOpensWhenFailureRateIsReached() {
+    call(true);
+    call(false);
+    call(false);
+    assertThat(circuitBreaker.failureRate()).isEqualTo(-1);
+    call(false);
+    assertThat(circuitBreaker.state()).isEqualTo(State.CLOSED);
+    assertThat(circuitBreaker.failureRate()).isEqualTo(25);
+    call(true);
+    assertThat(circuitBreaker.state()).isEqualTo(State.CLOSED);
+    call(true);
+    assertThat(circuitBreaker.state()).isEqualTo(State.OPEN);
+    assertThat(circuitBreaker.tryAcquire()).isFalse();
+    assertThat(circuitBreaker.notPermittedCalls()).isEqualTo(1);
+  }
+
+  @Test
+  public void circuitOpensWhenSlowCallRateIsReached() {
+    call(1, false);
+    call(100, false);
+    call(100, false);
+    call(100, false);
+    assertThat(circuitBreaker.slowCallRate()).isEqualTo(75);
+    assertThat(circuitBreaker.state()).isEqualTo(State.CLOSED);
+    call(100, false);
+    assertThat(circuitBreaker.state()).isEqualTo(State.OPEN);
+  }
+
+  @Test
+  public void circuitReopensWhenProbesFail() {
+    open();
+    now.addAndGet(999);
+    assertThat(circuitBreaker.tryAcquire()).isFalse();
+    now.addAndGet(1);
+    assertThat(circuitBreaker.tryAcquire()).isTrue();
+    assertThat(circuitBreaker.tryAcquire()).isTrue();
+    assertThat(circuitBreaker.tryAcquire()).isFalse();
+    circuitBreaker.onResult(1, true);
+    assertThat(circuitBreaker.state()).isEqualTo(State.HALF_OPEN);
+    circuitBreaker.onResult(1, false);
+    assertThat(circuitBreaker.state()).isEqualTo(State.OPEN);
+  }
+
+  @Test
+  public void releasedProbesCanBeRetried() {
+    open();
+    now.addAndGet(1000);
+    assertThat(circuitBreaker.tryAcquire()).isTrue();
+    assertThat(circuitBreaker.tryAcquire()).isTrue();
+    circuitBreaker.release();
+    assertThat(circuitBreaker.tryAcquire()).isTrue();
+    assertThat(circuitBreaker.tryAcquire()).isFalse();
+  }
+}
@@ -0,0 +1,107 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+
+public class FailureLogTest {
+
+  private FailureLog.Failure failure(HttpHeaders requestHeaders, String requestBody) {
+    return FailureLog.Failure.builder()
+        .method("POST")
+        .uri("http://localhost/fail")
+        .requestHeaders(requestHeaders)
+        .requestBody(requestBody)
+        .status(500)
+        .reason("Internal Server Error")
+        .responseHeaders(new HttpHeaders())
+        .responseBody("oops")
+        .build();
+  }
+
+  @Test
+  public void authorizationIsMasked() {
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(HttpHeaders.AUTHORIZATION, "Bearer secret");
+    headers.set("X-Other", "visible");
+    String description = failure(headers, "").describe(0);
+    assertThat(description).doesNotContain("secret").contains("*****").contains("visible");
+    assertThat(headers.getFirst(HttpHeaders.AUTHORIZATION)).isEqualTo("Bearer secret");
+  }
+
+  @Test
+  public void cookiesAreMaskedAndHeadersAreCopied() {
+    HttpHeaders requestHeaders = new HttpHeaders();
+    requestHeaders.set(HttpHeaders.COOKIE, "session=secret");
+    HttpHeaders responseHeaders = new HttpHeaders();
+    responseHeaders.set(HttpHeaders.SET_COOKIE, "session=secret; HttpOnly");
+    FailureLog.Failure failure =
+        FailureLog.Failure.builder()
+            .requestHeaders(requestHeaders)
+            .responseHeaders(responseHeaders)
+            .build();
+    requestHeaders.set("X-Later", "changed");
+    String description = failure.describe(0);
+    assertThat(description).doesNotContain("secret").doesNotContain("X-Later").contains("*****");
+    assertThat(responseHeaders.getFirst(HttpHeaders.SET_COOKIE)).contains("secret");
+  }
+
+  @Test
+  public void bodiesAreTruncated() {
+    FailureLog failureLog =
+        FailureLog.of(HttpClientProperties.builder().failureLogBodyBytes(5).build());
+    assertThat(failureLog.maxBodyBytes()).isEqualTo(5);
+    assertThat(failureLog.body("0123456789".getBytes(StandardCharsets.UTF_8)))
+        .isEqualTo("01234... (10 bytes total)");
+    assertThat(failureLog.body("012".getBytes(StandardCharsets.UTF_8))).isEqualTo("012");
+    assertThat(failureLog.body(null)).isEmpty();
+    assertThat(failureLog.body("01234".getBytes(StandardCharsets.UTF_8), 10))
+        .isEqualTo("01234... (10 bytes total)");
+    assertThat(failureLog.body("01234".getBytes(StandardCharsets.UTF_8), 5)).isEqualTo("01234");
+  }
+
+  @Test
+  public void failureIsDescribedInOneMessage() {
+    String description = failure(new HttpHeaders(), "{}").describe(3);
+    assertThat(description)
+        .startsWith("Request failed: POST http://localhost/fail -> 500 Internal Server Error")
+        .contains("Request body:\n{}")
+        .contains("Response body:\noops")
+        .endsWith("(3 other failures were not logged)");
+    assertThat(failure(new HttpHeaders(), null).describe(0))
+        .doesNotContain("Request body")
+        .doesNotContain("not logged");
+  }
+
+  @Test
+  public void failuresAreRateLimited() {
+    FailureLog failureLog =
+        FailureLog.of(HttpClientProperties.builder().failureLogsPerSecond(2).build());
+    assertThat(failureLog.permit()).isTrue();
+    assertThat(failureLog.permit()).isTrue();
+    assertThat(failureLog.permit()).isFalse();
+  }
+
+  @Test
+  public void failuresAreSampled() {
+    FailureLog failureLog =
+        FailureLog.of(HttpClientProperties.builder().failureLogSampleRate(0).build());
+    assertThat(failureLog.permit()).isFalse();
+  }
+
+  @Test
+  public void failuresAreDroppedWhenQueueIsFull() {
+    FailureLog failureLog =
+        FailureLog.of(HttpClientProperties.builder().failureLogQueueSize(1).build());
+    assertThatCode(
+            () -> {
+              for (int i = 0; i < 100; i++) {
+                failureLog.submit(failure(new HttpHeaders(), "{}"));
+              }
+            })
+        .doesNotThrowAnyException();
+  }
+}
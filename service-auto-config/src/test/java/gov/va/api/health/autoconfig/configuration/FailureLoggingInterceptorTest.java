@@ -0,0 +1,60 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import lombok.SneakyThrows;
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.util.StreamUtils;
+
+public class FailureLoggingInterceptorTest {
+  private final FailureLog failureLog = mock(FailureLog.class);
+
+  private final MockClientHttpRequest request =
+      new MockClientHttpRequest(HttpMethod.POST, URI.create("http://localhost/fail"));
+
+  @SneakyThrows
+  private ClientHttpResponse intercept(HttpStatus status) {
+    ClientHttpRequestExecution execution = mock(ClientHttpRequestExecution.class);
+    when(execution.execute(request, new byte[0]))
+        .thenReturn(
+            new MockClientHttpResponse("0123456789".getBytes(StandardCharsets.UTF_8), status));
+    return FailureLoggingInterceptor.of(failureLog).intercept(request, new byte[0], execution);
+  }
+
+  @Test
+  @SneakyThrows
+  public void failuresAreSubmittedWhenPermitted() {
+    when(failureLog.permit()).thenReturn(true);
+    when(failureLog.maxBodyBytes()).thenReturn(4);
+    ClientHttpResponse response = intercept(HttpStatus.BAD_GATEWAY);
+    assertThat(StreamUtils.copyToString(response.getBody(), StandardCharsets.UTF_8))
+        .isEqualTo("0123456789");
+    verify(failureLog).submit(any(FailureLog.Failure.class));
+  }
+
+  @Test
+  public void failuresAreNotCapturedWhenNotPermitted() {
+    when(failureLog.permit()).thenReturn(false);
+    assertThat(intercept(HttpStatus.BAD_GATEWAY)).isInstanceOf(MockClientHttpResponse.class);
+    verify(failureLog, never()).submit(any());
+  }
+
+  @Test
+  public void successfulResponsesAreNotCaptured() {
+    assertThat(intercept(HttpStatus.OK)).isInstanceOf(MockClientHttpResponse.class);
+    verify(failureLog, never()).permit();
+  }
+}
@@ -0,0 +1,241 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.SneakyThrows;
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+public class HedgingRetryInterceptorTest {
+  private final MeterRegistry registry = new SimpleMeterRegistry();
+
+  private HedgingRetryInterceptor interceptor(HttpClientProperties config) {
+    HedgingRetryInterceptor interceptor =
+        new HedgingRetryInterceptor(
+            "test", config, new RetryBudget(0.1, 0, System::nanoTime), System::nanoTime);
+    interceptor.bindTo(registry);
+    return interceptor;
+  }
+
+  private double count(String name, String... tags) {
+    return registry.get(name).tags(tags).counter().count();
+  }
+
+  @Test
+  @SneakyThrows
+  public void failedRequestsAreRetried() {
+    HedgingRetryInterceptor interceptor =
+        interceptor(
+            HttpClientProperties.builder()
+                .maxRetries(2)
+                .retryInitialBackoff(Duration.ofMillis(1))
+                .build());
+    ClientHttpRequestExecution execution = mock(ClientHttpRequestExecution.class);
+    when(execution.execute(any(), any()))
+        .thenThrow(new IOException("reset"))
+        .thenReturn(new MockClientHttpResponse(new byte[0], HttpStatus.SERVICE_UNAVAILABLE))
+        .thenReturn(new MockClientHttpResponse(new byte[0], HttpStatus.OK));
+    ClientHttpResponse response =
+        interceptor.intercept(
+            new MockClientHttpRequest(HttpMethod.GET, URI.create("http://example.com")),
+            new byte[0],
+            execution);
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    verify(execution, times(3)).execute(any(), any());
+    assertThat(count("http.client.retries")).isEqualTo(2);
+  }
+
+  @Test
+  @SneakyThrows
+  public void nonIdempotentRequestsAreNotRetried() {
+    HedgingRetryInterceptor interceptor =
+        interceptor(HttpClientProperties.builder().maxRetries(2).hedgingEnabled(true).build());
+    ClientHttpRequestExecution execution = mock(ClientHttpRequestExecution.class);
+    when(execution.execute(any(), any())).thenThrow(new IOException("reset"));
+    assertThatExceptionOfType(IOException.class)
+        .isThrownBy(
+            () ->
+                interceptor.intercept(
+                    new MockClientHttpRequest(HttpMethod.POST, URI.create("http://example.com")),
+                    new byte[0],
+                    execution));
+    verify(execution).execute(any(), any());
+  }
+
+  @Test
+  @SneakyThrows
+  public void retriesStopWhenTheBudgetIsExhausted() {
+    HedgingRetryInterceptor interceptor =
+        interceptor(
+            HttpClientProperties.builder()
+                .maxRetries(100)
+                .retryInitialBackoff(Duration.ZERO)
+                .build());
+    ClientHttpRequestExecution execution = mock(ClientHttpRequestExecution.class);
+    when(execution.execute(any(), any()))
+        .thenAnswer(invocation -> new MockClientHttpResponse(new byte[0], HttpStatus.BAD_GATEWAY));
+    ClientHttpResponse response =
+        interceptor.intercept(
+            new MockClientHttpRequest(HttpMethod.GET, URI.create("http://example.com")),
+            new byte[0],
+            execution);
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_GATEWAY);
+    verify(execution, times(11)).execute(any(), any());
+    assertThat(count("http.client.retry.budget.exhausted", "attempt", "retry")).isEqualTo(1);
+  }
+
+  @Test
+  @SneakyThrows
+  public void hedgesAreSkippedWhileThePoolIsFull() {
+    HedgingRetryInterceptor interceptor =
+        interceptor(
+            HttpClientProperties.builder()
+                .hedgingEnabled(true)
+                .hedgeMinDelay(Duration.ofMillis(10))
+                .maxConnections(1)
+                .build());
+    MockClientHttpResponse slow = new MockClientHttpResponse(new byte[0], HttpStatus.OK);
+    ClientHttpRequestExecution execution = mock(ClientHttpRequestExecution.class);
+    when(execution.execute(any(), any()))
+        .thenAnswer(
+            invocation -> {
+              TimeUnit.MILLISECONDS.sleep(100);
+              return slow;
+            });
+    ClientHttpResponse response =
+        interceptor.intercept(
+            new MockClientHttpRequest(HttpMethod.GET, URI.create("http://example.com")),
+            new byte[0],
+            execution);
+    assertThat(response).isSameAs(slow);
+    verify(execution).execute(any(), any());
+    assertThat(count("http.client.hedges.rejected")).isEqualTo(1);
+  }
+
+  @Test
+  @SneakyThrows
+  public void slowFailedRequestsAreAnsweredByTheHedge() {
+    HedgingRetryInterceptor interceptor =
+        interceptor(
+            HttpClientProperties.builder()
+                .hedgingEnabled(true)
+                .hedgeMinDelay(Duration.ofMillis(10))
+                .build());
+    CountDownLatch hedged = new CountDownLatch(1);
+    AtomicInteger attempts = new AtomicInteger();
+    List<Thread> threads = new CopyOnWriteArrayList<>();
+    MockClientHttpResponse fast = new MockClientHttpResponse(new byte[0], HttpStatus.OK);
+    ClientHttpRequestExecution execution = mock(ClientHttpRequestExecution.class);
+    when(execution.execute(any(), any()))
+        .thenAnswer(
+            invocation -> {
+              threads.add(Thread.currentThread());
+              if (attempts.incrementAndGet() == 1) {
+                hedged.await(10, TimeUnit.SECONDS);
+                throw new IOException("timeout");
+              }
+              hedged.countDown();
+              return fast;
+            });
+    ClientHttpResponse response =
+        interceptor.intercept(
+            new MockClientHttpRequest(HttpMethod.GET, URI.create("http://example.com")),
+            new byte[0],
+            execution);
+    assertThat(response).isSameAs(fast);
+    assertThat(threads).hasSize(2).doesNotContain(Thread.currentThread());
+    assertThat(count("http.client.hedges", "outcome", "won")).isEqualTo(1);
+  }
+
+  @Test
+  @SneakyThrows
+  public void slowHealthyRequestsAreAnsweredByAFasterHedge() {
+    HedgingRetryInterceptor interceptor =
+        interceptor(
+            HttpClientProperties.builder()
+                .hedgingEnabled(true)
+                .hedgeMinDelay(Duration.ofMillis(10))
+                .build());
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger attempts = new AtomicInteger();
+    ClientHttpResponse slow = mock(ClientHttpResponse.class);
+    when(slow.getRawStatusCode()).thenReturn(200);
+    MockClientHttpResponse fast = new MockClientHttpResponse(new byte[0], HttpStatus.OK);
+    ClientHttpRequestExecution execution = mock(ClientHttpRequestExecution.class);
+    when(execution.execute(any(), any()))
+        .thenAnswer(
+            invocation -> {
+              if (attempts.incrementAndGet() == 1) {
+                release.await(10, TimeUnit.SECONDS);
+                return slow;
+              }
+              return fast;
+            });
+    ClientHttpResponse response =
+        interceptor.intercept(
+            new MockClientHttpRequest(HttpMethod.GET, URI.create("http://example.com")),
+            new byte[0],
+            execution);
+    assertThat(response).isSameAs(fast);
+    assertThat(count("http.client.hedges", "outcome", "won")).isEqualTo(1);
+    release.countDown();
+    verify(slow, timeout(10_000)).close();
+  }
+
+  @Test
+  @SneakyThrows
+  public void slowHealthyRequestsKeepTheirResponse() {
+    HedgingRetryInterceptor interceptor =
+        interceptor(
+            HttpClientProperties.builder()
+                .hedgingEnabled(true)
+                .hedgeMinDelay(Duration.ofMillis(10))
+                .build());
+    CountDownLatch hedgeStarted = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger attempts = new AtomicInteger();
+    MockClientHttpResponse slow = new MockClientHttpResponse(new byte[0], HttpStatus.OK);
+    ClientHttpRequestExecution execution = mock(ClientHttpRequestExecution.class);
+    when(execution.execute(any(), any()))
+        .thenAnswer(
+            invocation -> {
+              if (attempts.incrementAndGet() == 1) {
+                hedgeStarted.await(10, TimeUnit.SECONDS);
+                return slow;
+              }
+              hedgeStarted.countDown();
+              release.await(10, TimeUnit.SECONDS);
+              return new MockClientHttpResponse(new byte[0], HttpStatus.OK);
+            });
+    ClientHttpResponse response =
+        interceptor.intercept(
+            new MockClientHttpRequest(HttpMethod.GET, URI.create("http://example.com")),
+            new byte[0],
+            execution);
+    assertThat(response).isSameAs(slow);
+    assertThat(count("http.client.hedges", "outcome", "lost")).isEqualTo(1);
+    release.countDown();
+  }
+}
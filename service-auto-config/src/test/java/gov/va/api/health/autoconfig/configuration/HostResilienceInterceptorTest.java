@@ -0,0 +1,164 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import gov.va.api.health.autoconfig.configuration.HostResilienceInterceptor.CallNotPermitted;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import lombok.SneakyThrows;
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+public class HostResilienceInterceptorTest {
+  private static MockClientHttpRequest request(String url) {
+    return new MockClientHttpRequest(HttpMethod.GET, URI.create(url));
+  }
+
+  @SneakyThrows
+  private static ClientHttpRequestExecution respondWith(HttpStatus status) {
+    ClientHttpRequestExecution execution = mock(ClientHttpRequestExecution.class);
+    when(execution.execute(any(), any()))
+        .thenAnswer(invocation -> new MockClientHttpResponse(new byte[0], status));
+    return execution;
+  }
+
+  @Test
+  @SneakyThrows
+  public void fullBulkheadRejectsRequests() {
+    HostResilienceInterceptor interceptor =
+        new HostResilienceInterceptor(
+            "test",
+            HttpClientProperties.builder()
+                .bulkheadMaxConcurrentCalls(5)
+                .routeBulkheadMaxConcurrentCalls(singletonMap("https://slow.com", 1))
+                .build());
+    MeterRegistry registry = new SimpleMeterRegistry();
+    interceptor.bindTo(registry);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch finish = new CountDownLatch(1);
+    ClientHttpRequestExecution blocking = mock(ClientHttpRequestExecution.class);
+    when(blocking.execute(any(), any()))
+        .thenAnswer(
+            invocation -> {
+              started.countDown();
+              finish.await();
+              return new MockClientHttpResponse(new byte[0], HttpStatus.OK);
+            });
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<ClientHttpResponse> first =
+          executor.submit(
+              () -> interceptor.intercept(request("https://slow.com/a"), new byte[0], blocking));
+      assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+      assertThatExceptionOfType(CallNotPermitted.class)
+          .isThrownBy(
+              () ->
+                  interceptor.intercept(
+                      request("https://SLOW.com:443/b"), new byte[0], respondWith(HttpStatus.OK)));
+      assertThat(
+              interceptor
+                  .intercept(request("https://fast.com/a"), new byte[0], respondWith(HttpStatus.OK))
+                  .getStatusCode())
+          .isEqualTo(HttpStatus.OK);
+      assertThat(
+              registry
+                  .get("http.client.bulkhead.available")
+                  .tags("httpclient", "test", "host", "https://slow.com:443")
+                  .gauge()
+                  .value())
+          .isEqualTo(0);
+      finish.countDown();
+      assertThat(first.get().getStatusCode()).isEqualTo(HttpStatus.OK);
+    } finally {
+      finish.countDown();
+      executor.shutdownNow();
+    }
+    assertThat(
+            registry
+                .get("http.client.not.permitted")
+                .tags("host", "https://slow.com:443", "guard", "bulkhead")
+                .counter()
+                .count())
+        .isEqualTo(1);
+    assertThat(interceptor.describe().get("https://slow.com:443"))
+        .containsEntry("bulkheadMaxConcurrentCalls", 1)
+        .containsEntry("bulkheadAvailableConcurrentCalls", 1)
+        .containsEntry("bulkheadRejectedCalls", 1L);
+    assertThat(interceptor.describe().get("https://fast.com:443"))
+        .containsEntry("bulkheadMaxConcurrentCalls", 5);
+  }
+
+  @Test
+  @SneakyThrows
+  public void openCircuitRejectsRequestsWithoutSendingThem() {
+    HostResilienceInterceptor interceptor =
+        new HostResilienceInterceptor(
+            "test",
+            HttpClientProperties.builder()
+                .circuitBreakerEnabled(true)
+                .circuitBreakerWindowSize(2)
+                .circuitBreakerMinimumCalls(2)
+                .circuitBreakerOpenDuration(Duration.ofMinutes(1))
+                .build());
+    MeterRegistry registry = new SimpleMeterRegistry();
+    interceptor.bindTo(registry);
+    ClientHttpRequestExecution failing = respondWith(HttpStatus.BAD_GATEWAY);
+    interceptor.intercept(request("http://down.com/a"), new byte[0], failing);
+    ClientHttpRequestExecution throwing = mock(ClientHttpRequestExecution.class);
+    when(throwing.execute(any(), any())).thenThrow(new IOException("nope"));
+    assertThatExceptionOfType(IOException.class)
+        .isThrownBy(() -> interceptor.intercept(request("http://down.com/b"), null, throwing));
+    ClientHttpRequestExecution unsent = respondWith(HttpStatus.OK);
+    assertThatExceptionOfType(CallNotPermitted.class)
+        .isThrownBy(() -> interceptor.intercept(request("http://down.com/c"), null, unsent));
+    verify(unsent, never()).execute(any(), any());
+    assertThat(
+            registry
+                .get("http.client.circuit.breaker.state")
+                .tags("host", "http://down.com:80", "state", "open")
+                .gauge()
+                .value())
+        .isEqualTo(1);
+    assertThat(
+            registry
+                .get("http.client.not.permitted")
+                .tags("host", "http://down.com:80", "guard", "circuit-breaker")
+                .counter()
+                .count())
+        .isEqualTo(1);
+    assertThat(interceptor.describe().get("http://down.com:80"))
+        .containsEntry("circuitBreakerState", CircuitBreaker.State.OPEN)
+        .containsEntry("circuitBreakerFailureRate", 100.0);
+  }
+
+  @Test
+  @SneakyThrows
+  public void requestsAreNotGuardedByDefault() {
+    HostResilienceInterceptor interceptor =
+        new HostResilienceInterceptor("test", HttpClientProperties.builder().build());
+    assertThat(interceptor.enabled()).isFalse();
+    interceptor.intercept(
+        request("http://example.com"), new byte[0], respondWith(HttpStatus.BAD_GATEWAY));
+    assertThat(interceptor.describe()).isEmpty();
+  }
+}
@@ -0,0 +1,118 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import java.io.IOException;
+import java.net.URI;
+import lombok.SneakyThrows;
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+public class HttpClientMetricsConfigTest {
+  private final HttpClientMetricsConfig config =
+      new HttpClientMetricsConfig(
+          HttpClientProperties.builder()
+              .metricsPercentiles(singletonList(0.9))
+              .metricsPercentilesHistogram(true)
+              .build());
+
+  private DistributionStatisticConfig configure(String name, DistributionStatisticConfig base) {
+    MeterFilter filter = config.httpClientDistributionMeterFilter();
+    return filter.configure(new Meter.Id(name, Tags.empty(), null, null, Meter.Type.TIMER), base);
+  }
+
+  @Test
+  public void distributionStatisticsAreAppliedToClientTimers() {
+    DistributionStatisticConfig requests =
+        configure("http.client.requests", DistributionStatisticConfig.NONE);
+    assertThat(requests.getPercentiles()).containsExactly(0.9);
+    assertThat(requests.isPercentileHistogram()).isTrue();
+    DistributionStatisticConfig lease =
+        configure("httpcomponents.httpclient.pool.lease", DistributionStatisticConfig.NONE);
+    assertThat(lease.getPercentiles()).containsExactly(0.9);
+  }
+
+  @Test
+  public void histogramsAreDisabledByDefault() {
+    DistributionStatisticConfig requests =
+        new HttpClientMetricsConfig(HttpClientProperties.builder().build())
+            .httpClientDistributionMeterFilter()
+            .configure(
+                new Meter.Id("http.client.requests", Tags.empty(), null, null, Meter.Type.TIMER),
+                DistributionStatisticConfig.NONE);
+    assertThat(requests.isPercentileHistogram()).isFalse();
+    assertThat(new HttpClientProperties().isMetricsPercentilesHistogram()).isFalse();
+  }
+
+  @Test
+  public void distributionStatisticsAreNotAppliedToOtherTimers() {
+    assertThat(configure("http.server.requests", DistributionStatisticConfig.NONE))
+        .isSameAs(DistributionStatisticConfig.NONE);
+  }
+
+  @Test
+  public void explicitlyConfiguredDistributionStatisticsAreKept() {
+    DistributionStatisticConfig explicit =
+        configure(
+            "http.client.requests",
+            DistributionStatisticConfig.builder()
+                .percentiles(0.5)
+                .percentilesHistogram(false)
+                .build());
+    assertThat(explicit.getPercentiles()).containsExactly(0.5);
+    assertThat(explicit.isPercentileHistogram()).isFalse();
+  }
+
+  @Test
+  public void outcomeIsTagged() {
+    assertThat(outcome(HttpStatus.OK)).isEqualTo("SUCCESS");
+    assertThat(outcome(HttpStatus.NOT_FOUND)).isEqualTo("CLIENT_ERROR");
+    assertThat(outcome(HttpStatus.BAD_GATEWAY)).isEqualTo("SERVER_ERROR");
+    assertThat(outcome(HttpStatus.MOVED_PERMANENTLY)).isEqualTo("REDIRECTION");
+    assertThat(OutcomeRestTemplateExchangeTagsProvider.outcome(null).getValue())
+        .isEqualTo("UNKNOWN");
+    assertThat(
+            OutcomeRestTemplateExchangeTagsProvider.outcome(
+                    new MockClientHttpResponse(new byte[0], HttpStatus.OK) {
+                      @Override
+                      public int getRawStatusCode() throws IOException {
+                        throw new IOException("closed");
+                      }
+                    })
+                .getValue())
+        .isEqualTo("UNKNOWN");
+  }
+
+  @SneakyThrows
+  private String outcome(HttpStatus status) {
+    ClientHttpResponse response = new MockClientHttpResponse(new byte[0], status);
+    Iterable<Tag> tags =
+        config
+            .restTemplateExchangeTagsProvider()
+            .getTags(
+                "/things/{id}",
+                new MockClientHttpRequest(HttpMethod.GET, URI.create("http://localhost/things/1")),
+                response);
+    assertThat(tags)
+        .contains(
+            Tag.of("uri", "/things/{id}"),
+            Tag.of("method", "GET"),
+            Tag.of("status", "" + status.value()));
+    for (Tag tag : tags) {
+      if ("outcome".equals(tag.getKey())) {
+        return tag.getValue();
+      }
+    }
+    return null;
+  }
+}
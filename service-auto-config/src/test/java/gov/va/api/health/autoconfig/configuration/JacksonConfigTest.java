@@ -1,17 +1,26 @@
 package gov.va.api.health.autoconfig.configuration;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
 import java.util.function.Supplier;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.Value;
+import org.apache.commons.lang3.StringUtils;
 import org.junit.Test;
 
 public class JacksonConfigTest {
@@ -35,12 +44,101 @@ public class JacksonConfigTest {
     assertThat(actual).isEqualTo(expected);
   }
 
+  @Test
+  @SneakyThrows
+  public void afterburnerOutputIsIdentical() {
+    Accelerated accelerated =
+        Accelerated.builder()
+            .name("  padded ")
+            .count(3)
+            .when(Instant.parse("2019-06-01T12:00:00Z"))
+            .maybe(Optional.of(" maybe "))
+            .candies(
+                Arrays.asList(
+                    CandyYaml.builder().ya(" one ").ml(1).build(),
+                    CandyYaml.builder().ya("two").ml(2).build()))
+            .build();
+    ObjectMapper plain = JacksonConfig.createMapper();
+    ObjectMapper afterburner = JacksonConfig.createMapper(true);
+    String expected = plain.writeValueAsString(accelerated);
+    assertThat(afterburner.writeValueAsString(accelerated)).isEqualTo(expected);
+    assertThat(afterburner.readValue(expected, Accelerated.class))
+        .isEqualTo(plain.readValue(expected, Accelerated.class));
+    assertThat(afterburner.writeValueAsString(new HasPublicFields(" a ", 1)))
+        .isEqualTo(plain.writeValueAsString(new HasPublicFields(" a ", 1)))
+        .isEqualTo("{\"text\":\"a\",\"number\":1}");
+    assertThat(afterburner.readValue("{\"text\":\"a\",\"number\":1}", HasPublicFields.class))
+        .isEqualTo(new HasPublicFields("a", 1));
+    assertThatThrownBy(() -> afterburner.readValue("{\"nope\":1}", HasPublicFields.class))
+        .isInstanceOf(UnrecognizedPropertyException.class);
+  }
+
+  @Test
+  public void afterburnerIsEnabledByProperty() {
+    assertThat(new JacksonConfig(true).objectMapper().getRegisteredModuleIds())
+        .contains(new AfterburnerModule().getTypeId());
+    assertThat(new JacksonConfig().objectMapper().getRegisteredModuleIds())
+        .doesNotContain(new AfterburnerModule().getTypeId());
+  }
+
+  @Test
+  public void boundedCacheIsEmptiedWhenFull() {
+    JacksonConfig.BoundedCache<String, String> cache = new JacksonConfig.BoundedCache<>(2);
+    assertThat(cache.computeIfAbsent("a", String::toUpperCase)).isEqualTo("A");
+    assertThat(cache.computeIfAbsent("b", String::toUpperCase)).isEqualTo("B");
+    assertThat(cache.computeIfAbsent("a", k -> "unused")).isEqualTo("A");
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.computeIfAbsent("c", String::toUpperCase)).isEqualTo("C");
+    assertThat(cache.size()).isEqualTo(1);
+  }
+
   @Test
   public void hasEasyToUseMapperSupplier() {
     Supplier<ObjectMapper> supplier = JacksonConfig::createMapper;
     assertThat(supplier.get()).isNotNull();
   }
 
+  @Test
+  @SneakyThrows
+  public void prescanResolvesBuildersInPackages() {
+    assertThat(
+            JacksonConfig.prescanBuilders(
+                "gov.va.api.health.autoconfig.configuration.testapp", "no.such.package"))
+        .isGreaterThanOrEqualTo(4);
+    new JacksonConfig()
+        .jacksonBuilderPrescan(new String[] {"gov.va.api.health.autoconfig.configuration.testapp"})
+        .afterPropertiesSet();
+    assertThat(
+            JacksonConfig.createMapper().readValue("{\"ya\":\"neat\",\"ml\":1}", CandyYaml.class))
+        .isEqualTo(CandyYaml.builder().ya("neat").ml(1).build());
+  }
+
+  @Test
+  @SneakyThrows
+  public void sharedReadersAndWritersAreReused() {
+    assertThat(JacksonConfig.readerFor(CandyYaml.class))
+        .isSameAs(JacksonConfig.readerFor(CandyYaml.class));
+    assertThat(JacksonConfig.readerForListOf(CandyYaml.class))
+        .isSameAs(JacksonConfig.readerForListOf(CandyYaml.class))
+        .isNotSameAs(JacksonConfig.readerFor(CandyYaml.class));
+    assertThat(JacksonConfig.writerFor(CandyYaml.class))
+        .isSameAs(JacksonConfig.writerFor(CandyYaml.class));
+  }
+
+  @Test
+  @SneakyThrows
+  public void sharedReadersAndWritersUseProjectConventions() {
+    CandyYaml candy = CandyYaml.builder().ya("  neat ").ml(1).build();
+    String json = JacksonConfig.writerFor(CandyYaml.class).writeValueAsString(candy);
+    assertThat(json).isEqualTo("{\"ya\":\"neat\",\"ml\":1}");
+    CandyYaml trimmed = CandyYaml.builder().ya("neat").ml(1).build();
+    assertThat((CandyYaml) JacksonConfig.readerFor(CandyYaml.class).readValue(json))
+        .isEqualTo(trimmed);
+    List<CandyYaml> list =
+        JacksonConfig.readerForListOf(CandyYaml.class).readValue("[" + json + "," + json + "]");
+    assertThat(list).containsExactly(trimmed, trimmed);
+  }
+
   @Test
   @SneakyThrows
   public void trimsWhiteSpace() {
@@ -49,6 +147,45 @@ public class JacksonConfigTest {
     assertThat(mapper.writeValueAsString(in)).isEqualTo("{\"ya\":\"spaces\",\"ml\":1}");
   }
 
+  @Test
+  @SneakyThrows
+  public void trimsWhiteSpaceLikeStringTrim() {
+    ObjectMapper mapper = JacksonConfig.createMapper();
+    ObjectMapper yaml = JacksonConfig.createMapper(new YAMLFactory());
+    String large = StringUtils.repeat("x", 10_000);
+    for (String value :
+        Arrays.asList(
+            "",
+            "   ",
+            "none",
+            " leading",
+            "trailing\t",
+            "\n\r\u0000both\u001f ",
+            " in side ",
+            " " + large + " ",
+            " " + large.substring(0, 300) + " ",
+            "\u00a0not whitespace\u00a0")) {
+      CandyYaml candy = CandyYaml.builder().ya(value).ml(1).build();
+      CandyYaml trimmed = CandyYaml.builder().ya(value.trim()).ml(1).build();
+      assertThat(mapper.writeValueAsString(candy)).isEqualTo(mapper.writeValueAsString(trimmed));
+      assertThat(mapper.readValue(mapper.writeValueAsString(candy), CandyYaml.class))
+          .isEqualTo(trimmed);
+      assertThat(yaml.readValue(yaml.writeValueAsString(candy), CandyYaml.class))
+          .isEqualTo(trimmed);
+    }
+  }
+
+  @SuppressWarnings("WeakerAccess")
+  @Value
+  @Builder
+  public static class Accelerated {
+    String name;
+    int count;
+    Instant when;
+    Optional<String> maybe;
+    List<CandyYaml> candies;
+  }
+
   @SuppressWarnings("WeakerAccess")
   @Value
   @Builder
@@ -65,4 +202,13 @@ public class JacksonConfigTest {
   public static class HasPrivateDefaultConstructor {
     String ok;
   }
+
+  @SuppressWarnings("WeakerAccess")
+  @EqualsAndHashCode
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class HasPublicFields {
+    public String text;
+    public int number;
+  }
 }
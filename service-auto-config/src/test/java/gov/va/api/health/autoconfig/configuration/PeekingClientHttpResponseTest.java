@@ -0,0 +1,50 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import lombok.SneakyThrows;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.util.StreamUtils;
+
+public class PeekingClientHttpResponseTest {
+
+  private MockClientHttpResponse response(String body) {
+    return new MockClientHttpResponse(
+        body.getBytes(StandardCharsets.UTF_8), HttpStatus.INTERNAL_SERVER_ERROR);
+  }
+
+  @Test
+  @SneakyThrows
+  public void bodyIsUnchangedWhenLimitExceedsBody() {
+    PeekingClientHttpResponse peeking = PeekingClientHttpResponse.of(response("hello"), 100);
+    assertThat(peeking.peek()).isEqualTo("hello");
+    assertThat(StreamUtils.copyToString(peeking.getBody(), StandardCharsets.UTF_8))
+        .isEqualTo("hello");
+  }
+
+  @Test
+  @SneakyThrows
+  public void bodyIsUnchangedWhenPeekIsTruncated() {
+    PeekingClientHttpResponse peeking = PeekingClientHttpResponse.of(response("hello world"), 5);
+    assertThat(peeking.peek()).isEqualTo("hello");
+    assertThat(StreamUtils.copyToString(peeking.getBody(), StandardCharsets.UTF_8))
+        .isEqualTo("hello world");
+    assertThat(peeking.getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+    assertThat(peeking.getRawStatusCode()).isEqualTo(500);
+    assertThat(peeking.getStatusText()).isEqualTo("Internal Server Error");
+    assertThat(peeking.getHeaders()).isEmpty();
+    peeking.close();
+  }
+
+  @Test
+  @SneakyThrows
+  public void nothingIsPeekedWhenLimitIsZero() {
+    PeekingClientHttpResponse peeking = PeekingClientHttpResponse.of(response("hello"), 0);
+    assertThat(peeking.peek()).isEmpty();
+    assertThat(StreamUtils.copyToString(peeking.getBody(), StandardCharsets.UTF_8))
+        .isEqualTo("hello");
+  }
+}
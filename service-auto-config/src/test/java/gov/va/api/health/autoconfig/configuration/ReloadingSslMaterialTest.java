@@ -0,0 +1,159 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.X509KeyManager;
+import javax.net.ssl.X509TrustManager;
+import lombok.SneakyThrows;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReloadingSslMaterialTest {
+  private final SslMaterialCache cache = SslMaterialCache.shared();
+
+  private File keyStore;
+
+  @After
+  public void clear() {
+    cache.clear();
+    assertThat(keyStore.delete()).isTrue();
+  }
+
+  private SslClientProperties config() {
+    return SslClientProperties.builder()
+        .enableClient(true)
+        .clientKeyPassword("secret")
+        .keyStore("file:" + keyStore.getAbsolutePath())
+        .keyStorePassword("secret")
+        .useTrustStore(true)
+        .trustStore("classpath:test-truststore.jks")
+        .trustStorePassword("secret")
+        .build();
+  }
+
+  @SneakyThrows
+  private void copy(String resource) {
+    long lastModified = keyStore.lastModified();
+    try (InputStream in = getClass().getResourceAsStream(resource)) {
+      Files.copy(in, keyStore.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+    /* Make sure the change is visible even on file systems with coarse timestamps. */
+    assertThat(keyStore.setLastModified(lastModified + 60_000)).isTrue();
+  }
+
+  @Before
+  @SneakyThrows
+  public void createKeyStore() {
+    keyStore = File.createTempFile("reloading-keystore", ".jks");
+    copy("/test-keystore.jks");
+  }
+
+  @Test
+  public void failedReloadKeepsPreviousMaterial() {
+    ReloadingSslMaterial material =
+        ReloadingSslMaterial.of(config(), cache, mock(ScheduledExecutorService.class));
+    X509KeyManager keyManager = (X509KeyManager) material.keyManagerFactory().getKeyManagers()[0];
+    copy("/corrupt-keystore.jks");
+    material.reload();
+    assertThat(keyManager.getClientAliases("DSA", null)).containsExactly("test");
+  }
+
+  @Test
+  public void keyManagerUsesReloadedKeyStore() {
+    ReloadingSslMaterial material =
+        ReloadingSslMaterial.of(config(), cache, mock(ScheduledExecutorService.class));
+    X509KeyManager keyManager = (X509KeyManager) material.keyManagerFactory().getKeyManagers()[0];
+    assertThat(keyManager.getClientAliases("DSA", null)).containsExactly("test");
+    assertThat(keyManager.getPrivateKey("test")).isNotNull();
+    assertThat(keyManager.getCertificateChain("test")).isNotEmpty();
+    /* The trust store has the certificate, but not the private key. */
+    copy("/test-truststore.jks");
+    material.reload();
+    assertThat(keyManager.getClientAliases("DSA", null)).isNull();
+    assertThat(keyManager.getPrivateKey("test")).isNull();
+  }
+
+  @Test
+  public void reloadIsNotScheduledWithoutInterval() {
+    ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+    ReloadingSslMaterial.of(config(), cache, scheduler);
+    verifyZeroInteractions(scheduler);
+  }
+
+  @Test
+  @SneakyThrows
+  public void socketFactoryUsesCurrentSslContext() {
+    ReloadingSslMaterial material =
+        ReloadingSslMaterial.of(config(), cache, mock(ScheduledExecutorService.class));
+    assertThat(material.socketFactory().getSupportedCipherSuites())
+        .isEqualTo(cache.sslContext(config()).getSocketFactory().getSupportedCipherSuites());
+    assertThat(material.socketFactory().createSocket()).isNotNull();
+  }
+
+  @Test
+  public void closeCancelsTheReloads() {
+    ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+    ScheduledFuture<?> reloads = mock(ScheduledFuture.class);
+    doReturn(reloads)
+        .when(scheduler)
+        .scheduleWithFixedDelay(any(Runnable.class), anyLong(), anyLong(), any());
+    SslClientProperties config = config();
+    config.setReloadInterval(Duration.ofSeconds(10));
+    ReloadingSslMaterial.of(config, cache, scheduler).close();
+    verify(reloads).cancel(false);
+  }
+
+  @Test
+  public void reboundConfigurationsDoNotChangeSharedMaterial() {
+    SslClientProperties config = config();
+    ReloadingSslMaterial material = cache.reloading(config);
+    config.setTrustStore("classpath:test-example-truststore.jks");
+    assertThat(cache.reloading(config)).isNotSameAs(material);
+    assertThat(cache.reloading(config())).isSameAs(material);
+    X509TrustManager trustManager =
+        (X509TrustManager) material.trustManagerFactory().getTrustManagers()[0];
+    assertThat(trustManager.getAcceptedIssuers()[0].getSubjectX500Principal().getName())
+        .startsWith("CN=test,");
+  }
+
+  @Test
+  public void reloadIsScheduledOnInterval() {
+    ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+    SslClientProperties config = config();
+    config.setReloadInterval(Duration.ofSeconds(10));
+    ReloadingSslMaterial.of(config, cache, scheduler);
+    verify(scheduler)
+        .scheduleWithFixedDelay(
+            any(Runnable.class), eq(10_000L), eq(10_000L), eq(TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void reloadingMaterialIsSharedPerConfiguration() {
+    assertThat(cache.reloading(config())).isSameAs(cache.reloading(config()));
+  }
+
+  @Test
+  public void trustManagerUsesTrustStore() {
+    ReloadingSslMaterial material =
+        ReloadingSslMaterial.of(config(), cache, mock(ScheduledExecutorService.class));
+    X509TrustManager trustManager =
+        (X509TrustManager) material.trustManagerFactory().getTrustManagers()[0];
+    assertThat(trustManager.getAcceptedIssuers()).hasSize(1);
+  }
+}
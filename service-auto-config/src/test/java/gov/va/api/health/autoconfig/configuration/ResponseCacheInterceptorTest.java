@@ -0,0 +1,134 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.SneakyThrows;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.util.StreamUtils;
+
+public class ResponseCacheInterceptorTest {
+  private final AtomicLong now = new AtomicLong(1_000_000);
+
+  private final MeterRegistry registry = new SimpleMeterRegistry();
+
+  private final ResponseCacheInterceptor interceptor =
+      new ResponseCacheInterceptor(
+          "test",
+          HttpClientProperties.builder().cacheEnabled(true).build(),
+          new ResponseCacheStore(1024 * 1024, null, 0),
+          now::get);
+
+  private final ClientHttpRequestExecution execution = mock(ClientHttpRequestExecution.class);
+
+  private static MockClientHttpResponse response(
+      HttpStatus status, String body, String... headers) {
+    MockClientHttpResponse response =
+        new MockClientHttpResponse(body.getBytes(StandardCharsets.UTF_8), status);
+    for (int i = 0; i < headers.length; i += 2) {
+      response.getHeaders().add(headers[i], headers[i + 1]);
+    }
+    return response;
+  }
+
+  private double count(String result) {
+    return registry.get("http.client.cache.requests").tag("result", result).counter().count();
+  }
+
+  @SneakyThrows
+  private String get(String authorization) {
+    MockClientHttpRequest request =
+        new MockClientHttpRequest(HttpMethod.GET, URI.create("http://example.com/Patient/1"));
+    request.getHeaders().set(HttpHeaders.AUTHORIZATION, authorization);
+    ClientHttpResponse response = interceptor.intercept(request, new byte[0], execution);
+    return StreamUtils.copyToString(response.getBody(), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  @SneakyThrows
+  public void freshResponsesAreReturnedWithoutARequest() {
+    interceptor.bindTo(registry);
+    when(execution.execute(any(), any()))
+        .thenReturn(response(HttpStatus.OK, "one", "Cache-Control", "max-age=60"))
+        .thenReturn(response(HttpStatus.OK, "two", "Cache-Control", "max-age=60"));
+    assertThat(get("Bearer a")).isEqualTo("one");
+    now.addAndGet(59_000);
+    assertThat(get("Bearer a")).isEqualTo("one");
+    assertThat(get("Bearer b")).isEqualTo("two");
+    verify(execution, times(2)).execute(any(), any());
+    assertThat(count("hit")).isEqualTo(1);
+    assertThat(count("miss")).isEqualTo(2);
+  }
+
+  @Test
+  @SneakyThrows
+  public void responsesThatMustNotBeStoredAreNotCached() {
+    when(execution.execute(any(), any()))
+        .thenReturn(response(HttpStatus.OK, "one", "Cache-Control", "no-store", "ETag", "\"1\""))
+        .thenReturn(response(HttpStatus.OK, "two"))
+        .thenReturn(response(HttpStatus.OK, "three"));
+    assertThat(get("Bearer a")).isEqualTo("one");
+    assertThat(get("Bearer a")).isEqualTo("two");
+    assertThat(get("Bearer a")).isEqualTo("three");
+  }
+
+  @Test
+  @SneakyThrows
+  public void staleResponsesAreRevalidated() {
+    interceptor.bindTo(registry);
+    when(execution.execute(any(), any()))
+        .thenReturn(response(HttpStatus.OK, "one", "Cache-Control", "max-age=10", "ETag", "\"v1\""))
+        .thenReturn(response(HttpStatus.NOT_MODIFIED, "", "Cache-Control", "max-age=20"))
+        .thenReturn(response(HttpStatus.OK, "two", "ETag", "\"v2\""));
+    assertThat(get("Bearer a")).isEqualTo("one");
+    now.addAndGet(10_000);
+    assertThat(get("Bearer a")).isEqualTo("one");
+    now.addAndGet(19_000);
+    assertThat(get("Bearer a")).isEqualTo("one");
+    now.addAndGet(1_000);
+    assertThat(get("Bearer a")).isEqualTo("two");
+    ArgumentCaptor<HttpRequest> requests = ArgumentCaptor.forClass(HttpRequest.class);
+    verify(execution, times(3)).execute(requests.capture(), any());
+    assertThat(requests.getAllValues().get(0).getHeaders().getIfNoneMatch()).isEmpty();
+    assertThat(requests.getAllValues().get(1).getHeaders().getIfNoneMatch())
+        .containsExactly("\"v1\"");
+    assertThat(requests.getAllValues().get(2).getHeaders().getIfNoneMatch())
+        .containsExactly("\"v1\"");
+    assertThat(count("hit")).isEqualTo(1);
+    assertThat(count("revalidated")).isEqualTo(1);
+    assertThat(count("miss")).isEqualTo(2);
+  }
+
+  @Test
+  @SneakyThrows
+  public void unsafeRequestsInvalidateCachedResponses() {
+    when(execution.execute(any(), any()))
+        .thenReturn(response(HttpStatus.OK, "one", "Cache-Control", "max-age=60"))
+        .thenReturn(response(HttpStatus.NO_CONTENT, ""))
+        .thenReturn(response(HttpStatus.OK, "two", "Cache-Control", "max-age=60"));
+    assertThat(get("Bearer a")).isEqualTo("one");
+    interceptor.intercept(
+        new MockClientHttpRequest(HttpMethod.PUT, URI.create("http://example.com/Patient/1")),
+        new byte[0],
+        execution);
+    assertThat(get("Bearer a")).isEqualTo("two");
+  }
+}
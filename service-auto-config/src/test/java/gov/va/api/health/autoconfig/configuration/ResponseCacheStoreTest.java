@@ -0,0 +1,118 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import gov.va.api.health.autoconfig.configuration.ResponseCacheStore.Entry;
+import gov.va.api.health.autoconfig.configuration.ResponseCacheStore.Tier;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import lombok.SneakyThrows;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.http.HttpHeaders;
+
+public class ResponseCacheStoreTest {
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private static Entry entry(String key, int bodyBytes) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setETag("\"" + key + "\"");
+    return Entry.builder()
+        .key(key)
+        .status(200)
+        .statusText("OK")
+        .headers(headers)
+        .body(new byte[bodyBytes])
+        .responseTime(42)
+        .initialAge(7)
+        .vary(Collections.singletonMap("Accept", "[application/json]"))
+        .build();
+  }
+
+  @Test
+  @SneakyThrows
+  public void diskTierSurvivesRestarts() {
+    Path directory = folder.newFolder().toPath();
+    ResponseCacheStore store = new ResponseCacheStore(1024 * 1024, directory, 1024 * 1024);
+    store.put(entry("a", 100));
+    store.put(entry("b", 100));
+    ResponseCacheStore restarted = new ResponseCacheStore(1024 * 1024, directory, 1024 * 1024);
+    assertThat(restarted.entries(Tier.MEMORY)).isZero();
+    assertThat(restarted.entries(Tier.DISK)).isEqualTo(2);
+    Entry a = restarted.get("a").orElseThrow(AssertionError::new);
+    assertThat(a.headers().getETag()).isEqualTo("\"a\"");
+    assertThat(a.body()).hasSize(100);
+    assertThat(a.initialAge()).isEqualTo(7);
+    assertThat(a.vary()).containsEntry("accept", "[application/json]");
+    assertThat(restarted.entries(Tier.MEMORY)).isEqualTo(1);
+    restarted.remove("b");
+    assertThat(restarted.get("b")).isEmpty();
+    assertThat(directory.toFile().list()).hasSize(1);
+  }
+
+  @Test
+  @SneakyThrows
+  public void filesDoNotContainKeys() {
+    Path directory = folder.newFolder().toPath();
+    ResponseCacheStore store = new ResponseCacheStore(1024 * 1024, directory, 1024 * 1024);
+    String key = "http://example.com/Patient/1\nAuthorization: [Bearer secret-token]";
+    HttpHeaders headers = new HttpHeaders();
+    headers.setETag("\"1\"");
+    store.put(entry(key, 100).toBuilder().headers(headers).build());
+    File[] files = directory.toFile().listFiles();
+    assertThat(files).hasSize(1);
+    String contents = new String(Files.readAllBytes(files[0].toPath()), StandardCharsets.UTF_8);
+    assertThat(contents).doesNotContain("secret-token").doesNotContain("example.com");
+    ResponseCacheStore restarted = new ResponseCacheStore(1024 * 1024, directory, 1024 * 1024);
+    assertThat(restarted.get(key).map(Entry::key)).contains(key);
+    assertThat(restarted.get("http://example.com/Patient/1")).isEmpty();
+  }
+
+  @Test
+  @SneakyThrows
+  public void invalidationRemovesEntriesCachedByPreviousRun() {
+    Path directory = folder.newFolder().toPath();
+    ResponseCacheStore store = new ResponseCacheStore(1024 * 1024, directory, 1024 * 1024);
+    store.put(entry("http://example.com/a\nAuthorization: [x]", 100));
+    store.put(entry("http://example.com/a\nAuthorization: [y]", 100));
+    store.put(entry("http://example.com/ab", 100));
+    ResponseCacheStore restarted = new ResponseCacheStore(1024 * 1024, directory, 1024 * 1024);
+    restarted.get("http://example.com/a\nAuthorization: [x]");
+    restarted.invalidate("http://example.com/a");
+    assertThat(restarted.entries(Tier.MEMORY)).isZero();
+    assertThat(restarted.entries(Tier.DISK)).isEqualTo(1);
+    assertThat(restarted.get("http://example.com/ab")).isPresent();
+    assertThat(directory.toFile().list()).hasSize(1);
+  }
+
+  @Test
+  @SneakyThrows
+  public void leastRecentlyUsedEntriesAreEvicted() {
+    Path directory = folder.newFolder().toPath();
+    long size = entry("a", 1000).size();
+    ResponseCacheStore store = new ResponseCacheStore(2 * size, directory, 1024 * 1024);
+    store.put(entry("a", 1000));
+    store.put(entry("b", 1000));
+    store.get("a");
+    store.put(entry("c", 1000));
+    assertThat(store.entries(Tier.MEMORY)).isEqualTo(2);
+    assertThat(store.evictions(Tier.MEMORY)).isEqualTo(1);
+    assertThat(store.size(Tier.MEMORY)).isEqualTo(2 * size);
+    assertThat(store.entries(Tier.DISK)).isEqualTo(3);
+    assertThat(store.get("b")).isPresent();
+    assertThat(store.evictions(Tier.MEMORY)).isEqualTo(2);
+  }
+
+  @Test
+  public void memoryOnlyStoreDoesNotWriteFiles() {
+    ResponseCacheStore store = new ResponseCacheStore(1024 * 1024, null, 0);
+    store.put(entry("a", 10));
+    store.invalidate("a");
+    assertThat(store.get("a")).isEmpty();
+    assertThat(store.size(Tier.DISK)).isZero();
+  }
+}
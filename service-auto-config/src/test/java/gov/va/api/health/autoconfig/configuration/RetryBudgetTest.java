@@ -0,0 +1,45 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+public class RetryBudgetTest {
+  private final AtomicLong now = new AtomicLong();
+
+  private final RetryBudget budget = new RetryBudget(0.5, 0.1, now::get);
+
+  @Test
+  public void depositsAllowRetries() {
+    while (budget.tryWithdraw()) {
+      /* Spend the initial balance. */
+    }
+    budget.deposit();
+    assertThat(budget.tryWithdraw()).isFalse();
+    budget.deposit();
+    assertThat(budget.tryWithdraw()).isTrue();
+    assertThat(budget.tryWithdraw()).isFalse();
+  }
+
+  @Test
+  public void minimumRateAccruesOverTime() {
+    while (budget.tryWithdraw()) {
+      /* Spend the initial balance. */
+    }
+    now.addAndGet(TimeUnit.SECONDS.toNanos(9));
+    assertThat(budget.tryWithdraw()).isFalse();
+    now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    assertThat(budget.tryWithdraw()).isTrue();
+  }
+
+  @Test
+  public void tokensAreCapped() {
+    for (int i = 0; i < 100; i++) {
+      budget.deposit();
+    }
+    now.addAndGet(TimeUnit.HOURS.toNanos(1));
+    assertThat(budget.available()).isEqualTo(10);
+  }
+}
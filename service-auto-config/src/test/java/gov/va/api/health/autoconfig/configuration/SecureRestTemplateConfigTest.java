@@ -1,12 +1,32 @@
 package gov.va.api.health.autoconfig.configuration;
 
+import static java.util.Collections.singletonMap;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 
+import com.sun.net.httpserver.HttpServer;
 import gov.va.api.health.autoconfig.configuration.SecureRestTemplateConfig.FailedToConfigureSsl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpHost;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.junit.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.web.client.RestTemplateAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestTemplate;
 
 @Slf4j
@@ -24,6 +44,92 @@ public class SecureRestTemplateConfigTest {
     }
   }
 
+  @Test
+  public void connectionPoolIsConfiguredFromProperties() {
+    HttpClientProperties httpClientProperties =
+        HttpClientProperties.builder()
+            .maxConnections(42)
+            .maxConnectionsPerRoute(7)
+            .routeMaxConnections(singletonMap("https://example.com", 13))
+            .validateAfterInactivity(Duration.ofMillis(500))
+            .build();
+    PoolingHttpClientConnectionManager pool =
+        new SecureRestTemplateConfig(
+                SslClientProperties.builder().enableClient(false).build(), httpClientProperties)
+            .secureConnectionManager();
+    assertThat(pool.getMaxTotal()).isEqualTo(42);
+    assertThat(pool.getDefaultMaxPerRoute()).isEqualTo(7);
+    assertThat(pool.getValidateAfterInactivity()).isEqualTo(500);
+    assertThat(
+            pool.getMaxPerRoute(
+                new HttpRoute(new HttpHost("example.com", 443, "https"), null, true)))
+        .isEqualTo(13);
+    assertThat(pool.getMaxPerRoute(new HttpRoute(new HttpHost("example.com", 80, "http"))))
+        .isEqualTo(7);
+  }
+
+  @Test
+  public void connectionPoolStatisticsArePublished() {
+    SecureRestTemplateConfig secureRestTemplateConfig =
+        new SecureRestTemplateConfig(
+            SslClientProperties.builder().enableClient(false).build(),
+            HttpClientProperties.builder().maxConnections(42).build());
+    MeterRegistry registry = new SimpleMeterRegistry();
+    secureRestTemplateConfig.secureConnectionManagerMetrics().bindTo(registry);
+    assertThat(
+            registry
+                .get("httpcomponents.httpclient.pool.total.max")
+                .tag("httpclient", "secure")
+                .gauge()
+                .value())
+        .isEqualTo(42);
+    assertThat(
+            registry
+                .get("httpcomponents.httpclient.pool.total.connections")
+                .tag("state", "leased")
+                .gauge()
+                .value())
+        .isEqualTo(0);
+    assertThat(registry.get("httpcomponents.httpclient.pool.total.pending").gauge().value())
+        .isEqualTo(0);
+  }
+
+  @Test
+  @SneakyThrows
+  public void connectionLeaseTimesArePublished() {
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext(
+        "/",
+        exchange -> {
+          exchange.sendResponseHeaders(200, -1);
+          exchange.close();
+        });
+    server.start();
+    try {
+      LeaseTimingConnectionManager pool =
+          new SecureRestTemplateConfig(
+                  SslClientProperties.builder().enableClient(false).build(),
+                  HttpClientProperties.builder().build())
+              .secureConnectionManager();
+      MeterRegistry registry = new SimpleMeterRegistry();
+      pool.bindTo(registry);
+      try (CloseableHttpClient client = HttpClients.custom().setConnectionManager(pool).build()) {
+        client
+            .execute(new HttpGet("http://localhost:" + server.getAddress().getPort() + "/ok"))
+            .close();
+      }
+      assertThat(
+              registry
+                  .get("httpcomponents.httpclient.pool.lease")
+                  .tag("httpclient", "secure")
+                  .timer()
+                  .count())
+          .isEqualTo(1);
+    } finally {
+      server.stop(0);
+    }
+  }
+
   @Test(expected = FailedToConfigureSsl.class)
   @SneakyThrows
   public void exceptionIsThrownWhenKeyStoreCannotBeFound() {
@@ -128,11 +234,155 @@ public class SecureRestTemplateConfigTest {
     tryWebRequest(makeOne(SslClientProperties.builder().enableClient(false).build()));
   }
 
+  @Test
+  @SneakyThrows
+  public void streamingRestTemplateReturnsCompleteBodyOfFailedResponse() {
+    String largeBody = StringUtils.repeat("0123456789", 100_000);
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext(
+        "/",
+        exchange -> {
+          byte[] bytes = largeBody.getBytes(StandardCharsets.UTF_8);
+          exchange.sendResponseHeaders(500, bytes.length);
+          try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+          }
+        });
+    server.start();
+    try {
+      RestTemplate rt =
+          new SecureRestTemplateConfig(
+                  SslClientProperties.builder().enableClient(false).build(),
+                  HttpClientProperties.builder().failureLogBodyBytes(10).build())
+              .streamingRestTemplate(new RestTemplateBuilder());
+      Throwable thrown =
+          catchThrowable(
+              () ->
+                  rt.getForEntity(
+                      "http://localhost:" + server.getAddress().getPort() + "/big", String.class));
+      assertThat(thrown).isInstanceOf(HttpServerErrorException.class);
+      assertThat(((HttpServerErrorException) thrown).getResponseBodyAsString())
+          .isEqualTo(largeBody);
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  public void http2RequestFactoryIsUsedWhenEnabled() {
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext(
+        "/",
+        exchange -> {
+          byte[] bytes = "ok".getBytes(StandardCharsets.UTF_8);
+          exchange.sendResponseHeaders(200, bytes.length);
+          try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+          }
+        });
+    server.start();
+    try {
+      String url = "http://localhost:" + server.getAddress().getPort() + "/ok";
+      SecureRestTemplateConfig secureRestTemplateConfig =
+          new SecureRestTemplateConfig(
+              SslClientProperties.builder().enableClient(false).build(),
+              HttpClientProperties.builder().http2Enabled(true).build());
+      assertThat(
+              secureRestTemplateConfig
+                  .restTemplate(new RestTemplateBuilder())
+                  .getForObject(url, String.class))
+          .isEqualTo("ok");
+      Http2RequestFactory factory = secureRestTemplateConfig.secureHttp2RequestFactory();
+      MeterRegistry registry = new SimpleMeterRegistry();
+      factory.bindTo(registry);
+      assertThat(new RestTemplate(factory).getForObject(url, String.class)).isEqualTo("ok");
+      assertThat(
+              registry
+                  .get("okhttp.pool.connections")
+                  .tag("httpclient", "secure")
+                  .tag("state", "idle")
+                  .gauge()
+                  .value())
+          .isEqualTo(1);
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  public void failureLogIsSharedByTheRestTemplates() {
+    new ApplicationContextRunner()
+        .withConfiguration(AutoConfigurations.of(RestTemplateAutoConfiguration.class))
+        .withUserConfiguration(
+            SslClientProperties.class, HttpClientProperties.class, SecureRestTemplateConfig.class)
+        .withPropertyValues("ssl.enable-client=false", "http-client.streaming=true")
+        .run(
+            context -> {
+              assertThat(context).hasSingleBean(FailureLog.class);
+              FailureLog failureLog = context.getBean(FailureLog.class);
+              for (String name : new String[] {"restTemplate", "streamingRestTemplate"}) {
+                assertThat(context.getBean(name, RestTemplate.class).getInterceptors())
+                    .filteredOn(FailureLoggingInterceptor.class::isInstance)
+                    .extracting("failureLog")
+                    .containsExactly(failureLog);
+              }
+            });
+  }
+
+  @Test
+  public void http2ReplacesTheApacheClientBeans() {
+    ApplicationContextRunner runner =
+        new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(RestTemplateAutoConfiguration.class))
+            .withUserConfiguration(
+                SslClientProperties.class,
+                HttpClientProperties.class,
+                SecureRestTemplateConfig.class)
+            .withPropertyValues("ssl.enable-client=false");
+    runner.run(
+        context ->
+            assertThat(context)
+                .hasSingleBean(CloseableHttpClient.class)
+                .hasSingleBean(LeaseTimingConnectionManager.class)
+                .doesNotHaveBean(Http2RequestFactory.class));
+    runner
+        .withPropertyValues("http-client.http2-enabled=true")
+        .run(
+            context ->
+                assertThat(context)
+                    .hasSingleBean(Http2RequestFactory.class)
+                    .hasSingleBean(RestTemplate.class)
+                    .doesNotHaveBean(CloseableHttpClient.class)
+                    .doesNotHaveBean(LeaseTimingConnectionManager.class)
+                    .doesNotHaveBean("secureConnectionManagerMetrics"));
+  }
+
+  @Test
+  @SneakyThrows
+  public void http2RequestFactoryUsesKeyStoreAndTrustStore() {
+    tryWebRequest(
+        new SecureRestTemplateConfig(
+                SslClientProperties.builder()
+                    .enableClient(true)
+                    .verify(true)
+                    .clientKeyPassword("secret")
+                    .keyStore("classpath:test-keystore.jks")
+                    .keyStorePassword("secret")
+                    .useTrustStore(true)
+                    .trustStore("classpath:test-truststore.jks")
+                    .trustStorePassword("secret")
+                    .build(),
+                HttpClientProperties.builder().http2Enabled(true).build())
+            .restTemplate(new RestTemplateBuilder()));
+  }
+
   private RestTemplate makeOne(SslClientProperties props) {
     assertThat(props.equals(new SslClientProperties())).isFalse();
     assertThat(props.hashCode()).isNotEqualTo(1);
     RestTemplateBuilder rtb = new RestTemplateBuilder();
-    return new SecureRestTemplateConfig(props).restTemplate(rtb);
+    return new SecureRestTemplateConfig(props, HttpClientProperties.builder().build())
+        .restTemplate(rtb);
   }
 
   /**
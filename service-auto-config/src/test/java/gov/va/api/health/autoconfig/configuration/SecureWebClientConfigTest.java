@@ -0,0 +1,172 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsParameters;
+import com.sun.net.httpserver.HttpsServer;
+import gov.va.api.health.autoconfig.configuration.SecureRestTemplateConfig.FailedToConfigureSsl;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.CertificateException;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import lombok.SneakyThrows;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+public class SecureWebClientConfigTest {
+  private static final String LARGE_BODY = StringUtils.repeat("0123456789", 10_000);
+
+  private HttpServer server;
+
+  private HttpsServer secureServer;
+
+  private static void respond(HttpExchange exchange) throws IOException {
+    int status = exchange.getRequestURI().getPath().equals("/500") ? 500 : 200;
+    byte[] bytes = LARGE_BODY.getBytes(StandardCharsets.UTF_8);
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  private String baseUrl() {
+    return "http://localhost:" + server.getAddress().getPort();
+  }
+
+  private String secureUrl() {
+    return "https://localhost:" + secureServer.getAddress().getPort();
+  }
+
+  @Test
+  public void completeBodyOfFailedResponseIsAvailable() {
+    WebClient wc = makeOne(SslClientProperties.builder().enableClient(false).build());
+    Throwable thrown =
+        catchThrowable(
+            () -> wc.get().uri(baseUrl() + "/500").retrieve().bodyToMono(String.class).block());
+    assertThat(thrown).isInstanceOf(WebClientResponseException.class);
+    assertThat(((WebClientResponseException) thrown).getResponseBodyAsString())
+        .isEqualTo(LARGE_BODY);
+  }
+
+  @Test
+  public void failuresAreLoggedWhenTheBodyIsNotRead() {
+    FailureLog failureLog =
+        spy(FailureLog.of(HttpClientProperties.builder().failureLogBodyBytes(100).build()));
+    WebClient wc =
+        WebClient.builder()
+            .filter(
+                new SecureWebClientConfig(
+                        SslClientProperties.builder().build(),
+                        HttpClientProperties.builder().build())
+                    .loggingFilter(failureLog))
+            .build();
+    ClientResponse response = wc.get().uri(baseUrl() + "/500").exchange().block();
+    assertThat(response.rawStatusCode()).isEqualTo(500);
+    ArgumentCaptor<FailureLog.Failure> failure = ArgumentCaptor.forClass(FailureLog.Failure.class);
+    verify(failureLog, timeout(10_000)).submit(failure.capture());
+    assertThat(failure.getValue().describe(0)).contains("Response body:\n0123456789");
+    assertThat(response.bodyToMono(String.class).block()).isEqualTo(LARGE_BODY);
+  }
+
+  @Test(expected = FailedToConfigureSsl.class)
+  public void exceptionIsThrownWhenKeyStorePasswordIsWrong() {
+    makeOne(
+        SslClientProperties.builder()
+            .enableClient(true)
+            .clientKeyPassword("secret")
+            .keyStore("classpath:test-keystore.jks")
+            .keyStorePassword("wrong")
+            .build());
+  }
+
+  @Test
+  public void hostnamesAreVerifiedWhenEnabled() {
+    WebClient wc = makeOne(exampleSsl(true));
+    Throwable thrown =
+        catchThrowable(
+            () -> wc.get().uri(secureUrl() + "/200").retrieve().bodyToMono(String.class).block());
+    assertThat(thrown).hasRootCauseInstanceOf(CertificateException.class);
+    assertThat(thrown.getCause()).hasMessageContaining("localhost");
+  }
+
+  @Test
+  public void keyStoreAndTrustStoresAreUsedWhenEnabled() {
+    WebClient wc = makeOne(exampleSsl(false));
+    assertThat(wc.get().uri(secureUrl() + "/200").retrieve().bodyToMono(String.class).block())
+        .isEqualTo(LARGE_BODY);
+  }
+
+  /** The example.com key and trust stores, which the secure server uses too. */
+  private SslClientProperties exampleSsl(boolean verify) {
+    return SslClientProperties.builder()
+        .enableClient(true)
+        .verify(verify)
+        .clientKeyPassword("secret")
+        .keyStore("classpath:test-example-keystore.jks")
+        .keyStorePassword("secret")
+        .useTrustStore(true)
+        .trustStore("classpath:test-example-truststore.jks")
+        .trustStorePassword("secret")
+        .build();
+  }
+
+  private WebClient makeOne(SslClientProperties props) {
+    return new SecureWebClientConfig(props, HttpClientProperties.builder().build())
+        .webClient(WebClient.builder());
+  }
+
+  @Before
+  @SneakyThrows
+  public void startServer() {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/", SecureWebClientConfigTest::respond);
+    server.start();
+    ReloadingSslMaterial material = SslMaterialCache.shared().reloading(exampleSsl(true));
+    SSLContext context = SSLContext.getInstance("TLS");
+    context.init(
+        material.keyManagerFactory().getKeyManagers(),
+        material.trustManagerFactory().getTrustManagers(),
+        null);
+    secureServer = HttpsServer.create(new InetSocketAddress("localhost", 0), 0);
+    secureServer.setHttpsConfigurator(
+        new HttpsConfigurator(context) {
+          @Override
+          public void configure(HttpsParameters params) {
+            SSLParameters parameters = context.getDefaultSSLParameters();
+            parameters.setNeedClientAuth(true);
+            params.setSSLParameters(parameters);
+          }
+        });
+    secureServer.createContext("/", SecureWebClientConfigTest::respond);
+    secureServer.start();
+  }
+
+  @After
+  public void stopServer() {
+    server.stop(0);
+    secureServer.stop(0);
+  }
+
+  @Test
+  public void successfulResponsesAreReturned() {
+    WebClient wc = makeOne(SslClientProperties.builder().enableClient(false).build());
+    assertThat(wc.get().uri(baseUrl() + "/200").retrieve().bodyToMono(String.class).block())
+        .isEqualTo(LARGE_BODY);
+  }
+}
@@ -0,0 +1,215 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.SneakyThrows;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.util.StreamUtils;
+
+public class SingleFlightInterceptorTest {
+  private final MeterRegistry registry = new SimpleMeterRegistry();
+
+  private final SingleFlightInterceptor interceptor =
+      new SingleFlightInterceptor(
+          "test", HttpClientProperties.builder().singleFlightEnabled(true).build());
+
+  private static MockClientHttpRequest request(String authorization) {
+    MockClientHttpRequest request =
+        new MockClientHttpRequest(HttpMethod.GET, URI.create("http://example.com/Patient/1"));
+    request.getHeaders().set(HttpHeaders.AUTHORIZATION, authorization);
+    return request;
+  }
+
+  @SneakyThrows
+  private static String text(ClientHttpResponse response) {
+    return StreamUtils.copyToString(response.getBody(), StandardCharsets.UTF_8);
+  }
+
+  private double count(String role) {
+    return registry.get("http.client.single.flight").tag("role", role).counter().count();
+  }
+
+  @Test
+  @SneakyThrows
+  public void concurrentIdenticalRequestsAreCoalesced() {
+    interceptor.bindTo(registry);
+    CountDownLatch release = new CountDownLatch(1);
+    ClientHttpRequestExecution execution = mock(ClientHttpRequestExecution.class);
+    when(execution.execute(any(), any()))
+        .thenAnswer(
+            invocation -> {
+              release.await(10, TimeUnit.SECONDS);
+              return new MockClientHttpResponse(
+                  "patient".getBytes(StandardCharsets.UTF_8), HttpStatus.OK);
+            });
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<ClientHttpResponse>> responses = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        responses.add(
+            executor.submit(
+                () -> interceptor.intercept(request("Bearer a"), new byte[0], execution)));
+      }
+      while (count("leader") + count("follower") < 4) {
+        Thread.sleep(1);
+      }
+      release.countDown();
+      for (Future<ClientHttpResponse> response : responses) {
+        assertThat(text(response.get())).isEqualTo("patient");
+      }
+    } finally {
+      release.countDown();
+      executor.shutdownNow();
+    }
+    verify(execution).execute(any(), any());
+    assertThat(count("leader")).isEqualTo(1);
+    assertThat(count("follower")).isEqualTo(3);
+  }
+
+  @Test
+  @SneakyThrows
+  public void followersFailWithTheLeader() {
+    CountDownLatch release = new CountDownLatch(1);
+    ClientHttpRequestExecution execution = mock(ClientHttpRequestExecution.class);
+    when(execution.execute(any(), any()))
+        .thenAnswer(
+            invocation -> {
+              release.await(10, TimeUnit.SECONDS);
+              throw new IOException("reset");
+            });
+    interceptor.bindTo(registry);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<ClientHttpResponse> leader =
+          executor.submit(() -> interceptor.intercept(request("Bearer a"), new byte[0], execution));
+      while (count("leader") < 1) {
+        Thread.sleep(1);
+      }
+      Future<ClientHttpResponse> follower =
+          executor.submit(() -> interceptor.intercept(request("Bearer a"), new byte[0], execution));
+      while (count("follower") < 1) {
+        Thread.sleep(1);
+      }
+      release.countDown();
+      assertThatExceptionOfType(Exception.class)
+          .isThrownBy(leader::get)
+          .withCauseInstanceOf(IOException.class);
+      assertThatExceptionOfType(Exception.class)
+          .isThrownBy(follower::get)
+          .withCauseInstanceOf(IOException.class);
+    } finally {
+      release.countDown();
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  public void requestsWithDifferentCredentialsAreNotCoalesced() {
+    ClientHttpRequestExecution execution = mock(ClientHttpRequestExecution.class);
+    when(execution.execute(any(), any()))
+        .thenAnswer(invocation -> new MockClientHttpResponse(new byte[0], HttpStatus.OK));
+    CountDownLatch release = new CountDownLatch(1);
+    ClientHttpRequestExecution blocking = mock(ClientHttpRequestExecution.class);
+    when(blocking.execute(any(), any()))
+        .thenAnswer(
+            invocation -> {
+              release.await(10, TimeUnit.SECONDS);
+              return new MockClientHttpResponse(new byte[0], HttpStatus.OK);
+            });
+    interceptor.bindTo(registry);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      executor.submit(() -> interceptor.intercept(request("Bearer a"), new byte[0], blocking));
+      while (count("leader") < 1) {
+        Thread.sleep(1);
+      }
+      assertThat(interceptor.intercept(request("Bearer b"), new byte[0], execution).getStatusCode())
+          .isEqualTo(HttpStatus.OK);
+      verify(execution, times(1)).execute(any(), any());
+    } finally {
+      release.countDown();
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  public void revalidationsOfTheResponseCacheAreNotJoined() {
+    AtomicLong now = new AtomicLong(1_000_000);
+    ResponseCacheInterceptor cache =
+        new ResponseCacheInterceptor(
+            "test",
+            HttpClientProperties.builder().cacheEnabled(true).build(),
+            new ResponseCacheStore(1024 * 1024, null, 0),
+            now::get);
+    CountDownLatch release = new CountDownLatch(1);
+    ClientHttpRequestExecution server = mock(ClientHttpRequestExecution.class);
+    when(server.execute(any(), any()))
+        .thenAnswer(
+            invocation -> {
+              HttpRequest request = invocation.getArgument(0);
+              if (!request.getHeaders().getIfNoneMatch().isEmpty()) {
+                release.await(10, TimeUnit.SECONDS);
+                return new MockClientHttpResponse(new byte[0], HttpStatus.NOT_MODIFIED);
+              }
+              MockClientHttpResponse response =
+                  new MockClientHttpResponse(
+                      "patient".getBytes(StandardCharsets.UTF_8), HttpStatus.OK);
+              response.getHeaders().setCacheControl("max-age=10");
+              response.getHeaders().setETag("\"v1\"");
+              return response;
+            });
+    ClientHttpRequestExecution singleFlight =
+        (request, body) -> interceptor.intercept(request, body, server);
+    interceptor.bindTo(registry);
+    assertThat(text(cache.intercept(request("Bearer a"), new byte[0], singleFlight)))
+        .isEqualTo("patient");
+    now.addAndGet(10_000);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<ClientHttpResponse> revalidated =
+          executor.submit(() -> cache.intercept(request("Bearer a"), new byte[0], singleFlight));
+      verify(server, timeout(10_000).times(2)).execute(any(), any());
+      MockClientHttpRequest unconditional = request("Bearer a");
+      unconditional.getHeaders().setCacheControl("no-store");
+      ClientHttpResponse response = cache.intercept(unconditional, new byte[0], singleFlight);
+      assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+      assertThat(text(response)).isEqualTo("patient");
+      release.countDown();
+      assertThat(text(revalidated.get())).isEqualTo("patient");
+    } finally {
+      release.countDown();
+      executor.shutdownNow();
+    }
+    assertThat(count("follower")).isZero();
+  }
+}
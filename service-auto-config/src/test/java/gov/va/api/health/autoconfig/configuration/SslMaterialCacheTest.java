@@ -0,0 +1,77 @@
+package gov.va.api.health.autoconfig.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import gov.va.api.health.autoconfig.configuration.SecureRestTemplateConfig.FailedToConfigureSsl;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.KeyStore;
+import lombok.SneakyThrows;
+import org.junit.After;
+import org.junit.Test;
+
+public class SslMaterialCacheTest {
+  private final SslMaterialCache cache = SslMaterialCache.shared();
+
+  private SslClientProperties.SslClientPropertiesBuilder config() {
+    return SslClientProperties.builder()
+        .enableClient(true)
+        .clientKeyPassword("secret")
+        .keyStore("classpath:test-keystore.jks")
+        .keyStorePassword("secret")
+        .useTrustStore(true)
+        .trustStore("classpath:test-truststore.jks")
+        .trustStorePassword("secret");
+  }
+
+  @After
+  public void clear() {
+    cache.clear();
+  }
+
+  @Test
+  @SneakyThrows
+  public void keyStoreIsReloadedWhenModified() {
+    File copy = File.createTempFile("test-keystore", ".jks");
+    copy.deleteOnExit();
+    try (InputStream in = getClass().getResourceAsStream("/test-keystore.jks")) {
+      Files.copy(in, copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+    String path = "file:" + copy.getAbsolutePath();
+    KeyStore first = cache.keyStore(path, "secret".toCharArray());
+    assertThat(cache.keyStore(path, "secret".toCharArray())).isSameAs(first);
+    assertThat(copy.setLastModified(copy.lastModified() - 60_000)).isTrue();
+    assertThat(cache.keyStore(path, "secret".toCharArray())).isNotSameAs(first);
+  }
+
+  @Test
+  public void keyStoresAreReused() {
+    KeyStore first = cache.keyStore("classpath:test-keystore.jks", "secret".toCharArray());
+    assertThat(cache.keyStore("classpath:test-keystore.jks", "secret".toCharArray()))
+        .isSameAs(first);
+    cache.clear();
+    assertThat(cache.keyStore("classpath:test-keystore.jks", "secret".toCharArray()))
+        .isNotSameAs(first);
+  }
+
+  @Test
+  public void managerFactoriesUseCachedStores() {
+    assertThat(cache.keyManagerFactory(config().build()).getKeyManagers()).isNotEmpty();
+    assertThat(cache.trustManagerFactory(config().build()).getTrustManagers()).isNotEmpty();
+  }
+
+  @Test
+  public void sslContextsAreReused() {
+    assertThat(cache.sslContext(config().build())).isSameAs(cache.sslContext(config().build()));
+    assertThat(cache.sslContext(config().useTrustStore(false).build()))
+        .isNotSameAs(cache.sslContext(config().build()));
+  }
+
+  @Test(expected = FailedToConfigureSsl.class)
+  public void wrongPasswordFailsEvenWhenStoreIsCached() {
+    cache.keyStore("classpath:test-keystore.jks", "secret".toCharArray());
+    cache.keyStore("classpath:test-keystore.jks", "wrong".toCharArray());
+  }
+}
@@ -1,6 +1,10 @@
 package gov.va.api.health.autoconfig.configuration.testapp;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 import gov.va.api.health.autoconfig.configuration.JacksonConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -8,10 +12,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.client.RestTemplate;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
@@ -21,6 +27,26 @@ import org.springframework.test.context.junit4.SpringRunner;
 public class AutoConfigurationTest {
   @Autowired TestRestTemplate rest;
 
+  @Autowired RestTemplate restTemplate;
+
+  @Autowired MeterRegistry registry;
+
+  @LocalServerPort int port;
+
+  @Test
+  public void clientRequestsAreTimed() {
+    restTemplate.getForEntity("http://localhost:" + port + "/hello", Fugazi.class);
+    Timer timer =
+        registry
+            .get("http.client.requests")
+            .tag("uri", "/hello")
+            .tag("method", "GET")
+            .tag("status", "200")
+            .tag("outcome", "SUCCESS")
+            .timer();
+    assertThat(timer.count()).isGreaterThanOrEqualTo(1);
+  }
+
   @Test
   public void jacksonIsEnabled() {
     log.info("{}", Fugazi.FugaziBuilder.class.getName());